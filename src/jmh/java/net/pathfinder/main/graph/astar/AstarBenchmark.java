@@ -0,0 +1,104 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.CandidateBuffer;
+import net.pathfinder.main.graph.CandidateSupplier;
+import net.pathfinder.main.graph.WalkabilityMemo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+
+/**
+ * Block level pathfinding on every {@link Terrain}. Per-position benchmarks walk over the path found during setup,
+ * or over a straight line to the target if there is none. Processing benchmarks include copying the path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AstarBenchmark {
+
+    private static final int LINK_LENGTH = 8;
+
+    @Param
+    public Terrain.Type type;
+
+    private Terrain terrain;
+    private List<BlockPos> path;
+    private long[] positions;
+    /**
+     * Created once per trial, as creating a supplier resets its whole walkability memo.
+     */
+    private CandidateSupplier supplier;
+    private final CandidateBuffer buffer = new CandidateBuffer();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        terrain = Terrain.create(type);
+        path = search().path();
+        List<BlockPos> probe = path.isEmpty() ? line(terrain.start(), terrain.target()) : path;
+        positions = probe.stream().mapToLong(BlockPos::asLong).toArray();
+        supplier = new CandidateSupplier(terrain.volume(), terrain.start(), new WalkabilityMemo());
+    }
+
+    @Benchmark
+    public PathResult runAstar() {
+        return search();
+    }
+
+    @Benchmark
+    public int getCandidates() {
+        int total = 0;
+        for (long pos : positions) {
+            supplier.getCandidates(pos, buffer);
+            total += buffer.size();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int isLinkValid() {
+        int valid = 0;
+        for (int i = 0; i < positions.length; i++) {
+            BlockPos from = BlockPos.fromLong(positions[i]);
+            BlockPos to = BlockPos.fromLong(positions[Math.min(i + LINK_LENGTH, positions.length - 1)]);
+            if (AstarBuilder.isLinkValid(terrain.volume(), from, to)) valid++;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public List<BlockPos> applySmoothing() {
+        List<BlockPos> copy = new ArrayList<>(path);
+        AstarBuilder.applySmoothing(terrain.volume(), copy);
+        return copy;
+    }
+
+    @Benchmark
+    public List<BlockPos> optimizePath() {
+        List<BlockPos> copy = new ArrayList<>(path);
+        AstarBuilder.optimizePath(copy);
+        return copy;
+    }
+
+    private PathResult search() {
+        return new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false)
+                .run(job -> AstarBuilder.runAstar(terrain.volume(), terrain.start(), terrain.target(), job));
+    }
+
+    private static List<BlockPos> line(BlockPos start, BlockPos target) {
+        List<BlockPos> line = new ArrayList<>();
+        int steps = Math.max(Math.abs(target.getX() - start.getX()), Math.abs(target.getZ() - start.getZ()));
+        for (int i = 0; i <= steps; i++) {
+            line.add(new BlockPos(start.getX() + (target.getX() - start.getX()) * i / steps, start.getY(),
+                    start.getZ() + (target.getZ() - start.getZ()) * i / steps));
+        }
+        return line;
+    }
+}
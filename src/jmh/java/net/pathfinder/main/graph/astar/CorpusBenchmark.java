@@ -0,0 +1,63 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.FlagVolume;
+import net.pathfinder.main.graph.WorldCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+
+/**
+ * Block level searches between random positions of {@link WorldCorpus} volumes. Each operation is a single search,
+ * cycling through pairs of sampled positions within regular search range of each other.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorpusBenchmark {
+
+    private static final int SAMPLES = 256;
+    private static final int PAIRS = 32;
+
+    @Param
+    public WorldCorpus.Kind kind;
+
+    @Param({"64", "256"})
+    public int size;
+
+    private FlagVolume volume;
+    private final List<BlockPos[]> pairs = new ArrayList<>();
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        volume = WorldCorpus.generate(kind, size, 1);
+        long[] samples = WorldCorpus.samplePositions(volume, SAMPLES, 2);
+        int range = cfg.maxPathDistance * 3 / 4;
+
+        for (int i = 0; i < samples.length && pairs.size() < PAIRS; i++) {
+            BlockPos start = BlockPos.fromLong(samples[i]);
+            for (int j = samples.length - 1; j > i; j--) {
+                BlockPos target = BlockPos.fromLong(samples[j]);
+                if (start.getSquaredDistance(target) > range * range) continue;
+                pairs.add(new BlockPos[]{start, target});
+                break;
+            }
+        }
+        if (pairs.isEmpty()) throw new IllegalStateException("No positions in range of each other found in " + kind + " of size " + size);
+    }
+
+    @Benchmark
+    public PathResult runAstar() {
+        BlockPos[] pair = pairs.get(next++ % pairs.size());
+        return new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false)
+                .run(job -> AstarBuilder.runAstar(volume, pair[0], pair[1], job));
+    }
+}
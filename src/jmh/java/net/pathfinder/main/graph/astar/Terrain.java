@@ -0,0 +1,167 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.FlagVolume;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static net.pathfinder.main.graph.FlagPresets.*;
+
+/**
+ * Small deterministic terrains for benchmarking searches, each with a start and a target in regular search range.
+ * All of them are built on a stone floor at y = 0 and only use fixed seeds, so results are reproducible between runs.
+ */
+public record Terrain(FlagVolume volume, BlockPos start, BlockPos target) {
+
+    private static final int SIZE = 64;
+    private static final int HEIGHT = 48;
+
+    public enum Type {
+        PLAINS,
+        STAIR_TOWER,
+        LADDER_SHAFT,
+        WATER_CHANNEL,
+        COBWEB_FIELD,
+        MAZE,
+        UNREACHABLE
+    }
+
+    public static Terrain create(Type type) {
+        return switch (type) {
+            case PLAINS -> plains();
+            case STAIR_TOWER -> stairTower();
+            case LADDER_SHAFT -> ladderShaft();
+            case WATER_CHANNEL -> waterChannel();
+            case COBWEB_FIELD -> cobwebField();
+            case MAZE -> maze();
+            case UNREACHABLE -> unreachable();
+        };
+    }
+
+    /**
+     * Flat open ground, the target diagonally across.
+     */
+    public static Terrain plains() {
+        return new Terrain(floor(), new BlockPos(4, 1, 4), new BlockPos(56, 1, 56));
+    }
+
+    /**
+     * Switchback flights of stairs, ten steps each, climbing to a target thirty blocks up.
+     */
+    public static Terrain stairTower() {
+        FlagVolume volume = floor();
+        int flights = 3;
+        int height = 0;
+        for (int flight = 0; flight < flights; flight++) {
+            int z = 20 + flight * 2;
+            for (int step = 0; step < 10; step++) {
+                int x = flight % 2 == 0 ? 20 + step : 29 - step;
+                height++;
+                volume.fill(x, 1, z, x, height - 1, z + 1, STONE);
+                volume.fill(x, height, z, x, height, z + 1, STAIRS);
+            }
+        }
+        return new Terrain(volume, new BlockPos(10, 1, 21), new BlockPos(29, height + 1, 24));
+    }
+
+    /**
+     * A pillar that can only be climbed with a ladder on one of its sides.
+     */
+    public static Terrain ladderShaft() {
+        FlagVolume volume = floor();
+        volume.fill(30, 1, 30, 34, 40, 34, STONE);
+        volume.fill(29, 1, 32, 29, 40, 32, LADDER);
+        return new Terrain(volume, new BlockPos(10, 1, 10), new BlockPos(32, 41, 32));
+    }
+
+    /**
+     * A long water channel between walls too high to leave it, swum from one end to the other.
+     */
+    public static Terrain waterChannel() {
+        FlagVolume volume = floor();
+        volume.fill(0, 1, 28, SIZE - 1, 4, 28, STONE);
+        volume.fill(0, 1, 32, SIZE - 1, 4, 32, STONE);
+        volume.fill(0, 1, 29, SIZE - 1, 3, 31, WATER);
+        return new Terrain(volume, new BlockPos(2, 2, 30), new BlockPos(61, 2, 30));
+    }
+
+    /**
+     * Open ground with cobwebs at feet or head height in about a third of the columns.
+     */
+    public static Terrain cobwebField() {
+        FlagVolume volume = floor();
+        Random random = new Random(7);
+        for (int x = 8; x < SIZE - 8; x++) {
+            for (int z = 8; z < SIZE - 8; z++) {
+                if (random.nextInt(3) == 0) volume.set(x, 1 + random.nextInt(2), z, COBWEB);
+            }
+        }
+        return new Terrain(volume, new BlockPos(4, 1, 4), new BlockPos(56, 1, 56));
+    }
+
+    /**
+     * A perfect maze with one block wide corridors and walls three blocks high, generated by a randomized depth-first search.
+     */
+    public static Terrain maze() {
+        FlagVolume volume = floor();
+        int cells = 25;
+        volume.fill(0, 1, 0, cells * 2, 3, cells * 2, STONE);
+
+        Random random = new Random(11);
+        boolean[] visited = new boolean[cells * cells];
+        Deque<Integer> stack = new ArrayDeque<>();
+        visited[0] = true;
+        stack.push(0);
+        volume.fill(1, 1, 1, 1, 3, 1, AIR);
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+        while (!stack.isEmpty()) {
+            int cell = stack.peek();
+            int cx = cell / cells;
+            int cz = cell % cells;
+
+            int[] order = {0, 1, 2, 3};
+            for (int i = 3; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+
+            boolean moved = false;
+            for (int i : order) {
+                int nx = cx + directions[i][0];
+                int nz = cz + directions[i][1];
+                if (nx < 0 || nz < 0 || nx >= cells || nz >= cells || visited[nx * cells + nz]) continue;
+
+                visited[nx * cells + nz] = true;
+                volume.fill(cx * 2 + 1 + directions[i][0], 1, cz * 2 + 1 + directions[i][1],
+                        cx * 2 + 1 + directions[i][0], 3, cz * 2 + 1 + directions[i][1], AIR);
+                volume.fill(nx * 2 + 1, 1, nz * 2 + 1, nx * 2 + 1, 3, nz * 2 + 1, AIR);
+                stack.push(nx * cells + nz);
+                moved = true;
+                break;
+            }
+            if (!moved) stack.pop();
+        }
+        return new Terrain(volume, new BlockPos(1, 1, 1), new BlockPos(cells * 2 - 1, 1, cells * 2 - 1));
+    }
+
+    /**
+     * Open ground with the target sealed inside a stone box, so the search exhausts everything in range.
+     */
+    public static Terrain unreachable() {
+        FlagVolume volume = floor();
+        volume.fill(40, 1, 40, 44, 5, 44, STONE);
+        volume.fill(41, 1, 41, 43, 4, 43, AIR);
+        return new Terrain(volume, new BlockPos(4, 1, 4), new BlockPos(42, 1, 42));
+    }
+
+    private static FlagVolume floor() {
+        FlagVolume volume = new FlagVolume(0, 0, 0, SIZE, HEIGHT, SIZE);
+        volume.fill(0, 0, 0, SIZE - 1, 0, SIZE - 1, STONE);
+        return volume;
+    }
+}
@@ -0,0 +1,56 @@
+package net.pathfinder.main.graph.waypoint.path;
+
+import net.pathfinder.main.graph.waypoint.GraphCorpus;
+import net.pathfinder.main.graph.waypoint.data.DimensionData;
+import net.pathfinder.main.graph.waypoint.data.Waypoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing on {@link GraphCorpus} grids in each {@link RoutingMode}. Each operation is a single query,
+ * cycling through random pairs of waypoints. Landmarks and contraction hierarchies are computed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"10000", "200000", "1000000"})
+    public int nodes;
+
+    @Param({"DIJKSTRA", "LANDMARKS", "CONTRACTION"})
+    public RoutingMode mode;
+
+    private RoutingGraph graph;
+    private Landmarks landmarks;
+    private ContractionHierarchy hierarchy;
+    private final Waypoint[][] queries = new Waypoint[QUERIES][];
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DimensionData data = GraphCorpus.grid(nodes, 1);
+        graph = RoutingGraph.compile(data);
+        landmarks = mode == RoutingMode.LANDMARKS ? Landmarks.compute(graph, 12) : null;
+        hierarchy = mode == RoutingMode.CONTRACTION ? ContractionHierarchy.compute(graph) : null;
+        Random random = new Random(2);
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new Waypoint[]{data.waypoints.get(random.nextInt(nodes)), data.waypoints.get(random.nextInt(nodes))};
+        }
+    }
+
+    @Benchmark
+    public List<DijkstraNode> findRoute() {
+        Waypoint[] query = queries[next++ % QUERIES];
+        if (hierarchy != null) return hierarchy.findRoute(query[0], query[1]);
+        return graph.findRoute(query[0], query[1], landmarks);
+    }
+}
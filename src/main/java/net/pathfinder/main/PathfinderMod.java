@@ -5,6 +5,7 @@ import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
@@ -12,6 +13,7 @@ import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.HudLayerRegistrationCallback;
 import net.fabricmc.fabric.api.client.rendering.v1.IdentifiedLayer;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.CommonLifecycleEvents;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.option.KeyBinding;
@@ -22,8 +24,12 @@ import net.minecraft.sound.SoundEvents;
 import net.minecraft.util.Identifier;
 import net.pathfinder.main.datagen.BlockTagProvider;
 import net.pathfinder.main.graph.astar.AstarBuilder;
+import net.pathfinder.main.graph.astar.HierarchicalBuilder;
+import net.pathfinder.main.graph.astar.PathCache;
 import net.pathfinder.main.graph.base.BaseBuilder;
 import net.pathfinder.main.graph.DebugManager;
+import net.pathfinder.main.graph.NavigationFlags;
+import net.pathfinder.main.graph.WorldChanges;
 import net.pathfinder.main.graph.render.GraphRenderer;
 import net.pathfinder.main.graph.render.HudRenderer;
 import net.pathfinder.main.graph.render.RenderUtils;
@@ -55,6 +61,14 @@ public class PathfinderMod implements ClientModInitializer {
      * Used for running some expensive pathfinding & related calculations to prevent game from freezing during them.
      */
     public static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    /**
+     * Used for preprocessing routing data in the background, which can take long enough to hold up searches on {@link #executor}.
+     */
+    public static final ExecutorService preprocessor = Executors.newSingleThreadExecutor();
+    /**
+     * Used for filtering render elements by range, kept apart from {@link #executor} so that it's never queued behind searches.
+     */
+    public static final ExecutorService renderer = Executors.newSingleThreadExecutor();
 
     public static KeyBinding activationKey;
     public static KeyBinding modeToggleKey;
@@ -73,6 +87,10 @@ public class PathfinderMod implements ClientModInitializer {
         LiteralArgumentBuilder<FabricClientCommandSource> root = literal("pathfinder")
                 .then(literal("debug")
                         .executes(context -> debug()))
+                .then(literal("stats")
+                        .executes(context -> Stats.print())
+                        .then(literal("reset")
+                                .executes(context -> Stats.reset())))
                 .then(literal("base")
                         .executes(BaseBuilder.INSTANCE::compute))
                 .then(literal("astar")
@@ -112,13 +130,31 @@ public class PathfinderMod implements ClientModInitializer {
     }
 
     private void registerEvents() {
-        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> WaypointIO.read());
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            NavigationFlags.rebuild();
+            HierarchicalBuilder.clear();
+            PathCache.clear();
+            WorldChanges.clear();
+            WaypointIO.read();
+        });
+        ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> WorldChanges.onChunkChanged(chunk.getPos()));
+        ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> WorldChanges.onChunkChanged(chunk.getPos()));
+        WorldChanges.subscribe(HierarchicalBuilder::onWorldChanged);
+        WorldChanges.subscribe(PathCache::onWorldChanged);
         ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> clear());
 
+        CommonLifecycleEvents.TAGS_LOADED.register((registries, client) -> {
+            if (client) {
+                NavigationFlags.rebuild();
+                PathCache.clear();
+            }
+        });
+
         ClientLifecycleEvents.CLIENT_STARTED.register(client -> WaypointIO.readIndex());
         ClientLifecycleEvents.CLIENT_STOPPING.register(client -> WaypointIO.writeIndex());
 
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            WorldChanges.flush();
             if (client.player != null) {
                 if (GraphEditor.active) {
                     GraphEditor.tick();
@@ -0,0 +1,135 @@
+package net.pathfinder.main;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Rolling statistics of searches and graph operations, shown by the stats command.
+ * Every metric keeps its latest samples in a ring buffer, which is only sorted into percentiles when requested.
+ * Instrumented code records one sample per operation, counting inside hot loops is left to plain fields.
+ */
+public class Stats {
+
+    private static final int WINDOW = 256;
+    private static final com.sun.management.ThreadMXBean threads = getThreadBean();
+    private static final Window[] windows = new Window[Metric.values().length];
+
+    static {
+        for (int i = 0; i < windows.length; i++) windows[i] = new Window();
+    }
+
+    public enum Metric {
+        SNAPSHOT_TIME("World capture", Unit.TIME),
+        SNAPSHOT_SECTIONS("World capture copied sections", Unit.COUNT),
+        ASTAR_TIME("A* search", Unit.TIME),
+        ASTAR_EXPANDED("A* expanded nodes", Unit.COUNT),
+        ASTAR_HEAP_OPERATIONS("A* heap operations", Unit.COUNT),
+        ASTAR_BLOCK_READS("A* block lookups", Unit.COUNT),
+        ASTAR_ALLOCATED("A* allocated memory", Unit.BYTES),
+        PROCESSING_TIME("A* path processing", Unit.TIME),
+        DIJKSTRA_TIME("Graph route search", Unit.TIME),
+        DIJKSTRA_EXPANDED("Graph route expanded nodes", Unit.COUNT),
+        DIJKSTRA_HEAP_OPERATIONS("Graph route heap operations", Unit.COUNT),
+        CH_QUERY_TIME("Contraction hierarchy route search", Unit.TIME),
+        CH_QUERY_EXPANDED("Contraction hierarchy route expanded nodes", Unit.COUNT),
+        CH_QUERY_HEAP_OPERATIONS("Contraction hierarchy route heap operations", Unit.COUNT),
+        ROUTING_COMPILE_TIME("Routing graph compilation", Unit.TIME),
+        LANDMARKS_COMPUTE_TIME("Routing landmark computation", Unit.TIME),
+        CONTRACTION_TIME("Contraction hierarchy preprocessing", Unit.TIME),
+        DATA_READ_TIME("Dimension data read", Unit.TIME),
+        DATA_WRITE_TIME("Dimension data write", Unit.TIME),
+        RENDER_UPDATE_TIME("Graph render update", Unit.TIME);
+
+        private final String label;
+        private final Unit unit;
+
+        Metric(String label, Unit unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+    }
+
+    private enum Unit {
+        TIME,
+        COUNT,
+        BYTES;
+
+        private String format(double value) {
+            return switch (this) {
+                case TIME -> String.format("%.2f ms", value / 1_000_000);
+                case COUNT -> String.format("%.0f", value);
+                case BYTES -> String.format("%.1f KB", value / 1024);
+            };
+        }
+    }
+
+    private static class Window {
+        private final long[] samples = new long[WINDOW];
+        private long count = 0;
+    }
+
+    public static void record(Metric metric, long value) {
+        Window window = windows[metric.ordinal()];
+        synchronized (window) {
+            window.samples[(int) (window.count++ % WINDOW)] = value;
+        }
+    }
+
+    /**
+     * Records time passed since a {@link System#nanoTime()} value.
+     */
+    public static void recordTime(Metric metric, long start) {
+        record(metric, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the amount of bytes allocated by the current thread so far, or -1 if the JVM doesn't support measuring it.
+     */
+    public static long getAllocatedBytes() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    @SuppressWarnings("SameReturnValue")
+    public static int print() {
+        boolean empty = true;
+        for (Metric metric : Metric.values()) {
+            Window window = windows[metric.ordinal()];
+            long count;
+            long[] samples;
+            synchronized (window) {
+                count = window.count;
+                samples = Arrays.copyOf(window.samples, (int) Math.min(count, WINDOW));
+            }
+            if (samples.length == 0) continue;
+            empty = false;
+
+            Arrays.sort(samples);
+            double sum = 0;
+            for (long sample : samples) sum += sample;
+            Unit unit = metric.unit;
+            Output.chat(metric.label + ": median " + unit.format(samples[samples.length / 2])
+                    + ", p95 " + unit.format(samples[Math.min(samples.length * 95 / 100, samples.length - 1)])
+                    + ", max " + unit.format(samples[samples.length - 1])
+                    + ", mean " + unit.format(sum / samples.length) + " (" + count + " total)");
+        }
+        if (empty) Output.chat("No statistics recorded yet.");
+        return 1;
+    }
+
+    @SuppressWarnings("SameReturnValue")
+    public static int reset() {
+        for (Window window : windows) {
+            synchronized (window) {
+                window.count = 0;
+            }
+        }
+        Output.chat("Statistics reset.");
+        return 1;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported())
+            return bean;
+        return null;
+    }
+}
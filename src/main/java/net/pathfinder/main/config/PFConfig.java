@@ -7,6 +7,11 @@ import dev.isxander.yacl3.api.controller.*;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.text.Text;
+import net.pathfinder.main.graph.MoveTable;
+import net.pathfinder.main.graph.astar.SearchMode;
+import net.pathfinder.main.graph.waypoint.WaypointIO;
+import net.pathfinder.main.graph.waypoint.data.DimensionData;
+import net.pathfinder.main.graph.waypoint.path.RoutingMode;
 
 import java.awt.*;
 import java.io.File;
@@ -28,6 +33,13 @@ public class PFConfig {
     public int maxOffGraphDistance = 200;
     public int recomputingDistance = 20;
     public int destinationRange = 4;
+    public RoutingMode routingMode = RoutingMode.LANDMARKS;
+    public int routingLandmarks = 12;
+    /**
+     * Routing settings the loaded routing data was last prepared for, null until the config is first updated.
+     */
+    private transient RoutingMode appliedRoutingMode;
+    private transient int appliedRoutingLandmarks;
 
     public transient int destinationRangeSquared = destinationRange * destinationRange;
     public transient int recomputingDistanceSquared = recomputingDistance * recomputingDistance;
@@ -38,8 +50,17 @@ public class PFConfig {
     public boolean useAstarOptimizing = true;
     public boolean saveUncompressedData = false;
     public int baseGraphMaxNodes = 10000;
+    public SearchMode searchMode = SearchMode.STANDARD;
+    public int anytimeBudget = 50;
+    public float anytimeInitialWeight = 2.5f;
+    public int maxSearchNodes = 1000000;
+    public int maxSearchTime = 5000;
+    public int pathCacheSize = 64;
+    public boolean useHierarchicalSearch = true;
+    public boolean useIncrementalSearch = true;
     //Ranges
     public int maxPathDistance = 80;
+    public int maxHierarchicalDistance = 512;
     public int gapSearchStartingRange = 20;
     public int nearestSearchRange = 50;
     public int targetMaxDistance = 30;
@@ -57,6 +78,8 @@ public class PFConfig {
     public float stairsCost = 1.0f;
     public float waterMulti = 2.0f;
     public float cobwebMulti = 10.0f;
+
+    public transient float[] moveCosts = MoveTable.computeCosts(this);
     //### RENDERING
     public int renderRange = 64;
     public float textScale = 0.75f;
@@ -67,6 +90,7 @@ public class PFConfig {
     //Graph colours
     public int lineColourRaw = -16711681;
     public int newLineColourRaw = -16711936;
+    public int pendingLineColourRaw = -256;
     public int startColourRaw = -1;
     public int selectedColourRaw = -16711936;
     public int selectedTargetColourRaw = -16744320;
@@ -74,6 +98,7 @@ public class PFConfig {
 
     public transient float[] lineColour4f = getComponents(lineColourRaw);
     public transient float[] newLineColour4f = getComponents(newLineColourRaw);
+    public transient float[] pendingLineColour4f = getComponents(pendingLineColourRaw);
     public transient float[] startColour4f = getComponents(startColourRaw);
     public transient float[] startFillColour4f = getComponents(withAlpha(startColourRaw));
     public transient float[] selectedColour4f = getComponents(selectedColourRaw);
@@ -112,9 +137,12 @@ public class PFConfig {
         recomputingDistanceSquared = recomputingDistance * recomputingDistance;
 
         targetMaxAngleRad = Math.toRadians(targetMaxAngle);
+        moveCosts = MoveTable.computeCosts(this);
+        updateRouting();
 
         lineColour4f = getComponents(lineColourRaw);
         newLineColour4f = getComponents(newLineColourRaw);
+        pendingLineColour4f = getComponents(pendingLineColourRaw);
         startColour4f = getComponents(startColourRaw);
         startFillColour4f = getComponents(withAlpha(startColourRaw));
         selectedColour4f = getComponents(selectedColourRaw);
@@ -125,6 +153,20 @@ public class PFConfig {
         teleportFillColour4f = getComponents(withAlpha(teleportColourRaw));
     }
 
+    /**
+     * Prepares loaded routing data again if routing settings changed since the last update.
+     */
+    private void updateRouting() {
+        boolean modeChanged = appliedRoutingMode != null && appliedRoutingMode != routingMode;
+        boolean landmarksChanged = appliedRoutingMode != null && appliedRoutingLandmarks != routingLandmarks;
+        appliedRoutingMode = routingMode;
+        appliedRoutingLandmarks = routingLandmarks;
+        if (!modeChanged && !landmarksChanged) return;
+
+        DimensionData data = WaypointIO.getData();
+        if (data != null) data.onRoutingChanged(modeChanged, landmarksChanged);
+    }
+
     private int withAlpha(int colour) {
         return (colour & 0xffffff) | (50 << 24);
     }
@@ -174,6 +216,18 @@ public class PFConfig {
                                 .name(Text.literal("Destination reach range"))
                                 .binding(4, () -> destinationRange, newVal -> destinationRange = newVal)
                                 .controller(IntegerFieldControllerBuilder::create).build())
+
+                        .option(Option.<RoutingMode>createBuilder()
+                                .name(Text.literal("Waypoint routing mode"))
+                                .binding(RoutingMode.LANDMARKS, () -> routingMode, newVal -> routingMode = newVal)
+                                .controller(opt -> EnumControllerBuilder.create(opt)
+                                        .enumClass(RoutingMode.class)
+                                        .formatValue(mode -> Text.literal(mode.name))).build())
+
+                        .option(Option.<Integer>createBuilder()
+                                .name(Text.literal("Routing landmark count"))
+                                .binding(12, () -> routingLandmarks, newVal -> routingLandmarks = newVal)
+                                .controller(opt -> IntegerFieldControllerBuilder.create(opt).range(8, 16)).build())
                         .build())
 
                 .category(ConfigCategory.createBuilder()
@@ -206,6 +260,48 @@ public class PFConfig {
                                         .name(Text.literal("Max base graph node count"))
                                         .binding(10000, () -> baseGraphMaxNodes, newVal -> baseGraphMaxNodes = newVal)
                                         .controller(IntegerFieldControllerBuilder::create).build())
+
+                                .option(Option.<SearchMode>createBuilder()
+                                        .name(Text.literal("A* search mode"))
+                                        .binding(SearchMode.STANDARD, () -> searchMode, newVal -> searchMode = newVal)
+                                        .controller(opt -> EnumControllerBuilder.create(opt)
+                                                .enumClass(SearchMode.class)
+                                                .formatValue(mode -> Text.literal(mode.name))).build())
+
+                                .option(Option.<Integer>createBuilder()
+                                        .name(Text.literal("Anytime A* time budget (ms)"))
+                                        .binding(50, () -> anytimeBudget, newVal -> anytimeBudget = newVal)
+                                        .controller(IntegerFieldControllerBuilder::create).build())
+
+                                .option(Option.<Float>createBuilder()
+                                        .name(Text.literal("Anytime A* initial weight"))
+                                        .binding(2.5f, () -> anytimeInitialWeight, newVal -> anytimeInitialWeight = newVal)
+                                        .controller(FloatFieldControllerBuilder::create).build())
+
+                                .option(Option.<Integer>createBuilder()
+                                        .name(Text.literal("Max A* expanded nodes"))
+                                        .binding(1000000, () -> maxSearchNodes, newVal -> maxSearchNodes = newVal)
+                                        .controller(IntegerFieldControllerBuilder::create).build())
+
+                                .option(Option.<Integer>createBuilder()
+                                        .name(Text.literal("Max A* search time (ms)"))
+                                        .binding(5000, () -> maxSearchTime, newVal -> maxSearchTime = newVal)
+                                        .controller(IntegerFieldControllerBuilder::create).build())
+
+                                .option(Option.<Integer>createBuilder()
+                                        .name(Text.literal("A* result cache size"))
+                                        .binding(64, () -> pathCacheSize, newVal -> pathCacheSize = newVal)
+                                        .controller(IntegerFieldControllerBuilder::create).build())
+
+                                .option(Option.<Boolean>createBuilder()
+                                        .name(Text.literal("Use hierarchical A* for distant targets"))
+                                        .binding(true, () -> useHierarchicalSearch, newVal -> useHierarchicalSearch = newVal)
+                                        .controller(TickBoxControllerBuilder::create).build())
+
+                                .option(Option.<Boolean>createBuilder()
+                                        .name(Text.literal("Use incremental replanning for debug paths"))
+                                        .binding(true, () -> useIncrementalSearch, newVal -> useIncrementalSearch = newVal)
+                                        .controller(TickBoxControllerBuilder::create).build())
                                 .build())
 
                         .group(OptionGroup.createBuilder()
@@ -216,6 +312,11 @@ public class PFConfig {
                                         .binding(80, () -> maxPathDistance, newVal -> maxPathDistance = newVal)
                                         .controller(IntegerFieldControllerBuilder::create).build())
 
+                                .option(Option.<Integer>createBuilder()
+                                        .name(Text.literal("Max hierarchical pathfinding distance"))
+                                        .binding(512, () -> maxHierarchicalDistance, newVal -> maxHierarchicalDistance = newVal)
+                                        .controller(IntegerFieldControllerBuilder::create).build())
+
                                 .option(Option.<Integer>createBuilder()
                                         .name(Text.literal("Graph gap search starting range"))
                                         .binding(20, () -> gapSearchStartingRange, newVal -> gapSearchStartingRange = newVal)
@@ -336,6 +437,12 @@ public class PFConfig {
                                                 () -> new Color(newLineColourRaw, true), newVal -> newLineColourRaw = newVal.getRGB())
                                         .controller(opt -> ColorControllerBuilder.create(opt).allowAlpha(true)).build())
 
+                                .option(Option.<Color>createBuilder()
+                                        .name(Text.literal("Pending graph line"))
+                                        .binding(new Color(-256, true),
+                                                () -> new Color(pendingLineColourRaw, true), newVal -> pendingLineColourRaw = newVal.getRGB())
+                                        .controller(opt -> ColorControllerBuilder.create(opt).allowAlpha(true)).build())
+
                                 .option(Option.<Color>createBuilder()
                                         .name(Text.literal("Targeted waypoint"))
                                         .binding(new Color(-1, true),
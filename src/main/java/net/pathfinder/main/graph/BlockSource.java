@@ -0,0 +1,17 @@
+package net.pathfinder.main.graph;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Block access used by movement rules, reduced to {@link NavigationFlags} bitmasks so that rules and searches
+ * don't depend on block states or the client world. Implemented by {@link WorldSnapshot} for searches running off-thread,
+ * by {@link LiveWorldSource} for checks done on the client thread and by {@link FlagVolume} for volumes built in code.
+ */
+public interface BlockSource {
+
+    int getFlags(int x, int y, int z);
+
+    default int getFlags(BlockPos pos) {
+        return getFlags(pos.getX(), pos.getY(), pos.getZ());
+    }
+}
@@ -0,0 +1,41 @@
+package net.pathfinder.main.graph;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * A reusable output buffer for {@link CandidateSupplier}, holding candidate positions packed with {@link BlockPos#asLong()}
+ * alongside their movement costs.
+ */
+public class CandidateBuffer {
+
+    /**
+     * Max amount of candidates for a single position, one for every neighbouring block.
+     */
+    public static final int CAPACITY = 26;
+
+    private final long[] positions = new long[CAPACITY];
+    private final float[] costs = new float[CAPACITY];
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public long position(int index) {
+        return positions[index];
+    }
+
+    public float cost(int index) {
+        return costs[index];
+    }
+
+    void add(long pos, float cost) {
+        positions[size] = pos;
+        costs[size] = cost;
+        size++;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -1,186 +1,300 @@
 package net.pathfinder.main.graph;
 
-import net.minecraft.block.Block;
-import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
-import net.minecraft.client.world.ClientWorld;
-import net.minecraft.registry.tag.BlockTags;
 import net.minecraft.util.math.BlockPos;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import static net.pathfinder.main.graph.MoveTable.*;
+import static net.pathfinder.main.graph.NavigationFlags.*;
 import static net.pathfinder.main.graph.PositionUtils.*;
 import static net.pathfinder.main.config.PFConfig.cfg;
 
 /**
  * Class responsible for finding new world positions using movement rules.
+ * Candidates are written into a caller-owned {@link CandidateBuffer}, so expanding a position doesn't allocate.
+ * Positions further than the max path distance from the search origin are not expanded.
+ * <p>
+ * The 3x5x3 area around the expanded position is read once per expansion into per-column bit planes,
+ * which are then packed into {@link MoveTable} keys to look up allowed moves and their costs.
+ * Validity of standing positions is remembered in a {@link WalkabilityMemo}, columns with no valid positions
+ * left to check are only read when needed for cutting a diagonal.
  */
 public class CandidateSupplier {
 
-    private final ClientWorld world;
-    private BlockPos pos;
-    private List<CandidateNode> nodes;
-
-    public CandidateSupplier(ClientWorld world) {
-        this.world = world;
+    private static final int CENTER = column(0, 0);
+    private static final ThreadLocal<WalkabilityMemo> memos = ThreadLocal.withInitial(WalkabilityMemo::new);
+
+    private final int[] passable = new int[9];
+    private final int[] safe = new int[9];
+    private final int[] standable = new int[9];
+    private final int[] solid = new int[9];
+    private final int[] climbable = new int[9];
+    private final int[] fence = new int[9];
+    private final int[] water = new int[9];
+    private final int[] cobweb = new int[9];
+    private final int[] stairs = new int[9];
+    private final int[] valid = new int[9];
+    private final BlockSource source;
+    private final WalkabilityMemo memo;
+    private final float[] costs;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int rangeSquared;
+    private CandidateBuffer buffer;
+    private int x;
+    private int y;
+    private int z;
+
+    /**
+     * Creates a supplier using a memo shared by the current thread, so only the latest one created this way
+     * on a thread can be used. Searches keeping multiple suppliers should pass their own memos.
+     */
+    public CandidateSupplier(BlockSource source, BlockPos origin) {
+        this(source, origin, memos.get());
     }
 
-    public List<CandidateNode> getCandidates(BlockPos pos) {
-        if (outOfRangeTrue(pos)) return List.of();
-
-        this.pos = pos;
-        this.nodes = new ArrayList<>();
-
-        moveStraight0(addXY(pos, -1, -1));
-        moveStraight0(addZY(pos, -1, -1));
-        moveStraight0(addXY(pos, 1, -1));
-        moveStraight0(addZY(pos, 1, -1));
-
-        moveDiagonal0(add(pos, -1, -1, -1));
-        moveDiagonal0(add(pos, -1, -1, 1));
-        moveDiagonal0(add(pos, 1, -1, -1));
-        moveDiagonal0(add(pos, 1, -1, 1));
+    public CandidateSupplier(BlockSource source, BlockPos origin, WalkabilityMemo memo) {
+        this(source, origin, cfg.maxPathDistance, memo);
+    }
 
-        moveStraight1(addX(pos, -1));
-        moveStraight1(addZ(pos, -1));
-        moveStraight1(addX(pos, 1));
-        moveStraight1(addZ(pos, 1));
+    public CandidateSupplier(BlockSource source, BlockPos origin, int range, WalkabilityMemo memo) {
+        this.source = source;
+        this.memo = memo;
+        this.costs = cfg.moveCosts;
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+        this.rangeSquared = range * range;
+        memo.reset(origin, range + 1);
+    }
 
-        moveDiagonal1(addXZ(pos, -1, -1));
-        moveDiagonal1(addXZ(pos, -1, 1));
-        moveDiagonal1(addXZ(pos, 1, -1));
-        moveDiagonal1(addXZ(pos, 1, 1));
+    /**
+     * Replaces the contents of the buffer with candidates reachable from a position packed with {@link BlockPos#asLong()}.
+     */
+    public void getCandidates(long pos, CandidateBuffer buffer) {
+        buffer.clear();
+        x = BlockPos.unpackLongX(pos);
+        y = BlockPos.unpackLongY(pos);
+        z = BlockPos.unpackLongZ(pos);
+        if (getSquaredDistance(originX, originY, originZ, x, y, z) > rangeSquared) return;
+
+        this.buffer = buffer;
+
+        int needed = 1 << CENTER;
+        for (int xVec = -1; xVec <= 1; xVec += 2) {
+            for (int zVec = -1; zVec <= 1; zVec += 2) {
+                if (!isKnownInvalid(xVec, zVec)) needed |= 1 << column(xVec, zVec) | 1 << column(0, zVec) | 1 << column(xVec, 0);
+            }
+        }
+        if (!isKnownInvalid(-1, 0)) needed |= 1 << column(-1, 0);
+        if (!isKnownInvalid(0, -1)) needed |= 1 << column(0, -1);
+        if (!isKnownInvalid(1, 0)) needed |= 1 << column(1, 0);
+        if (!isKnownInvalid(0, 1)) needed |= 1 << column(0, 1);
+        loadColumns(needed);
 
-        moveStraight2(addXY(pos, -1, 1));
-        moveStraight2(addZY(pos, -1, 1));
-        moveStraight2(addXY(pos, 1, 1));
-        moveStraight2(addZY(pos, 1, 1));
+        int centerBits = MoveTable.centerBits(solid[CENTER], passable[CENTER]);
 
-        moveDiagonal2(add(pos, -1, 1, -1));
-        moveDiagonal2(add(pos, -1, 1, 1));
-        moveDiagonal2(add(pos, 1, 1, -1));
-        moveDiagonal2(add(pos, 1, 1, 1));
+        moveStraight(-1, 0, centerBits);
+        moveStraight(0, -1, centerBits);
+        moveStraight(1, 0, centerBits);
+        moveStraight(0, 1, centerBits);
 
-        moveDown(addY(pos, -1));
-        moveUp(addY(pos, 1));
+        moveDiagonal(-1, -1, centerBits);
+        moveDiagonal(-1, 1, centerBits);
+        moveDiagonal(1, -1, centerBits);
+        moveDiagonal(1, 1, centerBits);
 
-        return nodes;
+        moveVertical();
     }
 
-    private void moveStraight0(BlockPos newPos) {
-        boolean b1 = isValidPosition(world, newPos);
-        boolean b2 = isPassable(world, newPos, 0, 2, 0);
-
-        if (b1 && b2) addNode(newPos, cfg.diagonalCost, Movement.DOWN);
+    /**
+     * Checks if all standing positions of a column are remembered as invalid, meaning no move can end there.
+     */
+    private boolean isKnownInvalid(int xVec, int zVec) {
+        for (int level = -1; level <= 1; level++) {
+            if (memo.get(x + xVec, y + level, z + zVec) != WalkabilityMemo.INVALID) return false;
+        }
+        return true;
     }
 
-    private void moveDiagonal0(BlockPos newPos) {
-        int xVector = pos.getX() - newPos.getX();
-        int zVector = pos.getZ() - newPos.getZ();
-
-        boolean b1 = isValidPosition(world, newPos);
-        boolean b2 = isPassable(world, newPos, 0, 2, 0);
-        boolean b3 = isPassable(world, newPos, xVector, 1, 0);
-        boolean b4 = isPassable(world, newPos, xVector, 2, 0);
-        boolean b5 = isPassable(world, newPos, 0, 1, zVector);
-        boolean b6 = isPassable(world, newPos, 0, 2, zVector);
-
-        if (b1 && b2 && ((b3 && b4) || (b5 && b6))) addNode(newPos, cfg.cubeDiagonalCost, Movement.DOWN);
+    /**
+     * Reads planes of the columns marked in a bitmask and remembers validity of their standing positions.
+     * Columns which aren't read are treated as having no valid positions.
+     */
+    private void loadColumns(int needed) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                int column = column(dx, dz);
+                if ((needed & 1 << column) == 0) {
+                    this.valid[column] = 0;
+                    continue;
+                }
+                readColumn(dx, dz, -2, 5);
+
+                int valid = (validPlane(passable[column], safe[column], standable[column]) >>> 1) & 0x7;
+                this.valid[column] = valid;
+                if (column == CENTER) continue;
+                for (int level = 0; level < 3; level++) {
+                    memo.set(x + dx, y + level - 1, z + dz, (valid >>> level & 1) != 0 ? WalkabilityMemo.VALID : WalkabilityMemo.INVALID);
+                }
+            }
+        }
     }
 
-    private void moveStraight1(BlockPos newPos) {
-        boolean b1 = isValidPosition(world, newPos);
-
-        if (b1) addNode(newPos, cfg.straightCost, Movement.LEVEL);
+    /**
+     * Reads planes of a column, bit 0 of each plane being the flag at the given y offset from the expanded position.
+     */
+    private void readColumn(int xVec, int zVec, int minLevel, int levels) {
+        int passable = 0, safe = 0, standable = 0, solid = 0, climbable = 0, fence = 0, water = 0, cobweb = 0, stairs = 0;
+
+        for (int level = 0; level < levels; level++) {
+            int flags = source.getFlags(x + xVec, y + minLevel + level, z + zVec);
+            passable |= bit(flags, PASSABLE) << level;
+            safe |= bit(~flags, DANGEROUS) << level;
+            standable |= bit(flags, STANDABLE) << level;
+            solid |= bit(flags, SOLID) << level;
+            climbable |= bit(flags, CLIMBABLE) << level;
+            fence |= bit(flags, FENCE) << level;
+            water |= bit(flags, WATER_PASSABLE) << level;
+            cobweb |= bit(flags, COBWEB) << level;
+            stairs |= bit(flags, STAIRS) << level;
+        }
+        int column = column(xVec, zVec);
+        this.passable[column] = passable;
+        this.safe[column] = safe;
+        this.standable[column] = standable;
+        this.solid[column] = solid;
+        this.climbable[column] = climbable;
+        this.fence[column] = fence;
+        this.water[column] = water;
+        this.cobweb[column] = cobweb;
+        this.stairs[column] = stairs;
     }
 
-    private void moveDiagonal1(BlockPos newPos) {
-        int xVector = pos.getX() - newPos.getX();
-        int zVector = pos.getZ() - newPos.getZ();
+    private void moveStraight(int xVec, int zVec, int centerBits) {
+        int c = column(xVec, zVec);
+        if (valid[c] == 0) return;
+        int moves = MoveTable.straight(straightKey(valid[c], passable[c], fence[c], centerBits));
 
-        boolean b1 = isValidPosition(world, newPos);
-        boolean b2 = isPassable(world, newPos, xVector, 0, 0);
-        boolean b3 = isPassable(world, newPos, xVector, 1, 0);
-        boolean b4 = isPassable(world, newPos, 0, 0, zVector);
-        boolean b5 = isPassable(world, newPos, 0, 1, zVector);
-
-        if (b1 && ((b2 && b3) || (b4 && b5))) addNode(newPos, cfg.diagonalCost, Movement.LEVEL);
+        if ((moves & DOWN) != 0) addNode(xVec, -1, zVec, STRAIGHT_DOWN);
+        if ((moves & LEVEL) != 0) addNode(xVec, 0, zVec, STRAIGHT);
+        if ((moves & UP) != 0) addNode(xVec, 1, zVec, STRAIGHT_UP);
     }
 
-    private void moveStraight2(BlockPos newPos) {
-        boolean b1 = isValidPosition(world, newPos) && notFence(world, newPos, 0, -1, 0);
-        boolean b2 = isSolid(world, pos, 0, -1, 0);
-        boolean b3 = isPassable(world, pos, 0, 2, 0);
+    private void moveDiagonal(int xVec, int zVec, int centerBits) {
+        int c = column(xVec, zVec);
+        if (valid[c] == 0) return;
+        int key = straightKey(valid[c], passable[c], fence[c], centerBits)
+                | gapKey(passable[column(0, zVec)], passable[column(xVec, 0)]);
+        int moves = MoveTable.diagonal(key);
 
-        if (b1 && b2 && b3) addNode(newPos, cfg.diagonalCost, Movement.UP);
+        if ((moves & DOWN) != 0) addNode(xVec, -1, zVec, DIAGONAL_DOWN);
+        if ((moves & LEVEL) != 0) addNode(xVec, 0, zVec, DIAGONAL);
+        if ((moves & UP) != 0) addNode(xVec, 1, zVec, DIAGONAL_UP);
     }
 
-    private void moveDiagonal2(BlockPos newPos) {
-        int xVector = pos.getX() - newPos.getX();
-        int zVector = pos.getZ() - newPos.getZ();
+    private void moveVertical() {
+        int moves = MoveTable.vertical(verticalKey(passable[CENTER], safe[CENTER], standable[CENTER], climbable[CENTER]));
 
-        boolean b1 = isValidPosition(world, newPos) && notFence(world, newPos, 0, -1, 0);
-        boolean b2 = isSolid(world, pos, 0, -1, 0);
-        boolean b3 = isPassable(world, newPos, xVector, 0, 0);
-        boolean b4 = isPassable(world, newPos, xVector, 1, 0);
-        boolean b5 = isPassable(world, newPos, 0, 0, zVector);
-        boolean b6 = isPassable(world, newPos, 0, 1, zVector);
-        boolean b7 = isPassable(world, pos, 0, 2, 0);
+        if ((moves & DOWN) != 0) addNode(0, -1, 0, VERTICAL);
+        if ((moves & UP) != 0) addNode(0, 1, 0, VERTICAL);
+    }
 
-        if (b1 && b2 && ((b3 && b4) || (b5 && b6)) && b7) addNode(newPos, cfg.cubeDiagonalCost, Movement.UP);
+    private void addNode(int xVec, int yVec, int zVec, int type) {
+        int c = column(xVec, zVec);
+        int modifiers = MoveTable.modifiers(water[c], cobweb[c], stairs[c], yVec + 2);
+        buffer.add(BlockPos.asLong(x + xVec, y + yVec, z + zVec), cost(costs, type, modifiers));
     }
 
-    private void moveDown(BlockPos newPos) {
-        boolean b1 = isClimbable(world, newPos);
-        boolean b2 = isPassable(world, pos);
+    /**
+     * Replaces the contents of the buffer with positions the given one can be reached from, along with costs of those moves.
+     * Used for searching backwards. Evaluates the same rules as {@link #getCandidates(long, CandidateBuffer)} from the side
+     * of every possible predecessor, using a 3x7x3 area so that the 5 block tall stencil of each one is covered.
+     */
+    public void getPredecessors(long pos, CandidateBuffer buffer) {
+        buffer.clear();
+        x = BlockPos.unpackLongX(pos);
+        y = BlockPos.unpackLongY(pos);
+        z = BlockPos.unpackLongZ(pos);
+        this.buffer = buffer;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) readColumn(dx, dz, -3, 7);
+        }
+        boolean standing = (validPlane(passable[CENTER], safe[CENTER], standable[CENTER]) >>> 3 & 1) != 0;
+
+        for (int yVec = -1; yVec <= 1; yVec++) {
+            if (standing) {
+                reverseStraight(1, 0, yVec);
+                reverseStraight(0, 1, yVec);
+                reverseStraight(-1, 0, yVec);
+                reverseStraight(0, -1, yVec);
+
+                reverseDiagonal(1, 1, yVec);
+                reverseDiagonal(1, -1, yVec);
+                reverseDiagonal(-1, 1, yVec);
+                reverseDiagonal(-1, -1, yVec);
+            }
+            if (yVec != 0) reverseVertical(yVec);
+        }
+    }
 
-        if (b1 && b2) addNode(newPos, cfg.verticalCost, Movement.DOWN);
-        else {
-            boolean b3 = isStandable(world, newPos, 0, -1, 0);
-            boolean b4 = isPassable(world, newPos) && isSafe(world, newPos);
+    /**
+     * Checks a straight move with the given vector ending at the current position.
+     */
+    private void reverseStraight(int xVec, int zVec, int yVec) {
+        int shift = 1 - yVec;
+        int c = column(-xVec, -zVec);
+        int key = straightKey(1 << (yVec + 1), passable[CENTER] >>> shift, fence[CENTER] >>> shift,
+                MoveTable.centerBits(solid[c] >>> shift, passable[c] >>> shift));
 
-            if (b3 && b4) addNode(newPos, cfg.verticalCost, Movement.DOWN);
-        }
+        if ((MoveTable.straight(key) & move(yVec)) != 0) addPredecessor(xVec, yVec, zVec, STRAIGHT_DOWN + (yVec + 1) * 2);
     }
 
-    private void moveUp(BlockPos newPos) {
-        boolean b1 = isClimbable(world, newPos);
-        boolean b2 = isPassable(world, newPos, 0, 1, 0);
+    /**
+     * Checks a diagonal move with the given vector ending at the current position.
+     */
+    private void reverseDiagonal(int xVec, int zVec, int yVec) {
+        int shift = 1 - yVec;
+        int c = column(-xVec, -zVec);
+        int key = straightKey(1 << (yVec + 1), passable[CENTER] >>> shift, fence[CENTER] >>> shift,
+                MoveTable.centerBits(solid[c] >>> shift, passable[c] >>> shift))
+                | gapKey(passable[column(-xVec, 0)] >>> shift, passable[column(0, -zVec)] >>> shift);
+
+        if ((MoveTable.diagonal(key) & move(yVec)) != 0) addPredecessor(xVec, yVec, zVec, DIAGONAL_DOWN + (yVec + 1) * 2);
+    }
 
-        if (b1 && b2) addNode(newPos, cfg.verticalCost, Movement.UP);
-        else {
-            boolean b3 = isClimbable(world, pos) && isStandable(world, pos);
-            boolean b4 = isPassable(world, newPos);
-            boolean b5 = isPassable(world, newPos, 0, 1, 0);
+    /**
+     * Checks a vertical move ending at the current position.
+     */
+    private void reverseVertical(int yVec) {
+        int shift = 1 - yVec;
+        int key = verticalKey(passable[CENTER] >>> shift, safe[CENTER] >>> shift, standable[CENTER] >>> shift, climbable[CENTER] >>> shift);
 
-            if (b3 && b4 && b5) addNode(newPos, cfg.verticalCost, Movement.UP);
-        }
+        if ((MoveTable.vertical(key) & move(yVec)) != 0) addPredecessor(0, yVec, 0, VERTICAL);
     }
 
-    private void addNode(BlockPos newPos, float cost, Movement move) {
-        nodes.add(new CandidateNode(newPos, computeCost(newPos, cost, move)));
+    /**
+     * Adds the position a move with the given vector starts from, if it's within range.
+     */
+    private void addPredecessor(int xVec, int yVec, int zVec, int type) {
+        int fromX = x - xVec;
+        int fromY = y - yVec;
+        int fromZ = z - zVec;
+        if (getSquaredDistance(originX, originY, originZ, fromX, fromY, fromZ) > rangeSquared) return;
+
+        int modifiers = MoveTable.modifiers(water[CENTER], cobweb[CENTER], stairs[CENTER], 3);
+        buffer.add(BlockPos.asLong(fromX, fromY, fromZ), cost(costs, type, modifiers));
     }
 
-    private float computeCost(BlockPos pos, float cost, Movement move) {
-        BlockState state1 = world.getBlockState(addY(pos, -1));
-        BlockState state2 = world.getBlockState(pos);
-        BlockState state3 = world.getBlockState(addY(pos, 1));
-        //Block block1 = state1.getBlock();
-        Block block2 = state2.getBlock();
-        Block block3 = state3.getBlock();
-        
-        if (move != Movement.LEVEL) cost += cfg.yChangeCost;
-        if (isWaterPassable(state1) || isWaterPassable(state2) || isWaterPassable(state3)) cost *= cfg.waterMulti;
-        if (block2.equals(Blocks.COBWEB) || block3.equals(Blocks.COBWEB)) cost += cfg.cobwebMulti;
-        if (move != Movement.LEVEL && state1.isIn(BlockTags.STAIRS)) cost = cfg.stairsCost;
+    private static int move(int yVec) {
+        return yVec < 0 ? DOWN : yVec == 0 ? LEVEL : UP;
+    }
 
-        return cost;
+    private static int column(int xVec, int zVec) {
+        return (xVec + 1) * 3 + zVec + 1;
     }
 
-    private enum Movement {
-        DOWN,
-        LEVEL,
-        UP
+    private static int bit(int flags, int flag) {
+        return flags >>> Integer.numberOfTrailingZeros(flag) & 1;
     }
 }
@@ -41,5 +41,6 @@ public class DebugManager {
         start3d = null;
         target3d = null;
         lines = new ArrayList<>();
+        AstarBuilder.clearIncremental();
     }
 }
\ No newline at end of file
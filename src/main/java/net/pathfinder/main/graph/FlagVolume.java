@@ -0,0 +1,99 @@
+package net.pathfinder.main.graph;
+
+import java.util.Arrays;
+
+/**
+ * A box of {@link NavigationFlags} set directly instead of being read from a world, allowing movement rules
+ * and searches to run without a client, e.g. in tests and benchmarks. Positions outside the box read as the fill flags,
+ * which are {@link NavigationFlags#PASSABLE} (air) unless changed.
+ */
+public class FlagVolume implements BlockSource {
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final short[] flags;
+    private int outside = NavigationFlags.PASSABLE;
+
+    public FlagVolume(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.flags = new short[Math.multiplyExact(Math.multiplyExact(sizeX, sizeY), sizeZ)];
+        Arrays.fill(flags, (short) NavigationFlags.PASSABLE);
+    }
+
+    @Override
+    public int getFlags(int x, int y, int z) {
+        int index = index(x, y, z);
+        return index < 0 ? outside : flags[index] & 0xFFFF;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return index(x, y, z) >= 0;
+    }
+
+    public void set(int x, int y, int z, int flags) {
+        int index = index(x, y, z);
+        if (index < 0) throw new IndexOutOfBoundsException("Position " + x + ", " + y + ", " + z + " is outside of the volume");
+        this.flags[index] = (short) flags;
+    }
+
+    /**
+     * Sets flags of all positions in a box, bounds are inclusive and clamped to the volume.
+     */
+    public void fill(int fromX, int fromY, int fromZ, int toX, int toY, int toZ, int flags) {
+        for (int x = Math.max(fromX, minX); x <= Math.min(toX, minX + sizeX - 1); x++) {
+            for (int y = Math.max(fromY, minY); y <= Math.min(toY, minY + sizeY - 1); y++) {
+                for (int z = Math.max(fromZ, minZ); z <= Math.min(toZ, minZ + sizeZ - 1); z++) {
+                    this.flags[index(x, y, z)] = (short) flags;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets flags read for positions outside the volume.
+     */
+    public void setOutside(int flags) {
+        this.outside = flags;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        x -= minX;
+        y -= minY;
+        z -= minZ;
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) return -1;
+        return (x * sizeZ + z) * sizeY + y;
+    }
+}
@@ -0,0 +1,22 @@
+package net.pathfinder.main.graph;
+
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Wraps the live world. Should only be used on the client thread.
+ */
+public class LiveWorldSource implements BlockSource {
+
+    private final ClientWorld world;
+    private final BlockPos.Mutable mutable = new BlockPos.Mutable();
+
+    public LiveWorldSource(ClientWorld world) {
+        this.world = world;
+    }
+
+    @Override
+    public int getFlags(int x, int y, int z) {
+        return NavigationFlags.get(world.getBlockState(mutable.set(x, y, z)));
+    }
+}
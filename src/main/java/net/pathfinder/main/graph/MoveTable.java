@@ -0,0 +1,204 @@
+package net.pathfinder.main.graph;
+
+import net.pathfinder.main.config.PFConfig;
+
+/**
+ * Movement rules precomputed into decision tables. Relevant flag bits of the area around an expanded position are
+ * packed into an integer key, which indexes a bitmask of allowed moves, so expansion doesn't branch on single rules.
+ * Costs of every move type with every combination of cost modifiers are kept in {@link PFConfig#moveCosts}.
+ * <p>
+ * Keys are built from per-column bit planes, where bit n of a plane is the flag at y offset n - 2 from the expanded position.
+ * Target columns contribute the validity of their three standing positions, see {@link #validPlane}.
+ */
+public class MoveTable {
+
+    public static final int DOWN = 1;
+    public static final int LEVEL = 1 << 1;
+    public static final int UP = 1 << 2;
+
+    //Move types, used as cost table rows
+    public static final int STRAIGHT_DOWN = 0;
+    public static final int DIAGONAL_DOWN = 1;
+    public static final int STRAIGHT = 2;
+    public static final int DIAGONAL = 3;
+    public static final int STRAIGHT_UP = 4;
+    public static final int DIAGONAL_UP = 5;
+    public static final int VERTICAL = 6;
+    private static final int MOVE_TYPES = 7;
+
+    //Cost modifiers, used as cost table columns
+    public static final int MOD_WATER = 1;
+    public static final int MOD_COBWEB = 1 << 1;
+    public static final int MOD_STAIRS = 1 << 2;
+    private static final int MODIFIERS = 8;
+
+    /**
+     * Indexed by {@link #straightKey}, contains allowed moves towards a horizontally adjacent column.
+     */
+    private static final byte[] STRAIGHT_MOVES = new byte[1 << 7];
+    /**
+     * Indexed by {@link #straightKey} with {@link #gapKey} bits on top, contains allowed moves towards a diagonal column.
+     */
+    private static final byte[] DIAGONAL_MOVES = new byte[1 << 9];
+    /**
+     * Indexed by {@link #verticalKey}, contains allowed moves within the expanded column.
+     */
+    private static final byte[] VERTICAL_MOVES = new byte[1 << 10];
+    /**
+     * Indexed by passable planes of both side columns shifted to y offset 0, contains whether the diagonal can be cut
+     * at feet level (bit 0) and one block higher (bit 1).
+     */
+    private static final byte[] GAPS = new byte[1 << 6];
+
+    static {
+        for (int key = 0; key < STRAIGHT_MOVES.length; key++) STRAIGHT_MOVES[key] = (byte) straightMoves(key);
+        for (int key = 0; key < DIAGONAL_MOVES.length; key++) DIAGONAL_MOVES[key] = (byte) diagonalMoves(key);
+        for (int key = 0; key < VERTICAL_MOVES.length; key++) VERTICAL_MOVES[key] = (byte) verticalMoves(key);
+        for (int key = 0; key < GAPS.length; key++) GAPS[key] = (byte) gaps(key);
+    }
+
+    public static int straight(int key) {
+        return STRAIGHT_MOVES[key];
+    }
+
+    public static int diagonal(int key) {
+        return DIAGONAL_MOVES[key];
+    }
+
+    public static int vertical(int key) {
+        return VERTICAL_MOVES[key];
+    }
+
+    /**
+     * Returns a plane of positions that can be stood in: standable below, passable and safe at feet, passable at head.
+     */
+    public static int validPlane(int passable, int safe, int standable) {
+        return (standable << 1) & passable & safe & (passable >>> 1);
+    }
+
+    /**
+     * Packs the target column with the two expanded column bits used by upward moves.
+     * Layout: valid -1..1 (from {@link #validPlane} shifted to y offset -1), passable 1, fence 0,
+     * expanded column solid -1, expanded column passable 2.
+     */
+    public static int straightKey(int valid, int passable, int fence, int centerBits) {
+        return valid
+                | ((passable >>> 3) & 1) << 3
+                | ((fence >>> 2) & 1) << 4
+                | centerBits;
+    }
+
+    /**
+     * Expanded column bits of {@link #straightKey}, computed once per expansion.
+     */
+    public static int centerBits(int solid, int passable) {
+        return ((solid >>> 1) & 1) << 5 | ((passable >>> 4) & 1) << 6;
+    }
+
+    public static int gapKey(int passableA, int passableB) {
+        return GAPS[((passableA >>> 2) & 0x7) | ((passableB >>> 2) & 0x7) << 3] << 7;
+    }
+
+    /**
+     * Layout: passable -1..2, safe -1, standable -2, standable 0, climbable -1..1.
+     */
+    public static int verticalKey(int passable, int safe, int standable, int climbable) {
+        return ((passable >>> 1) & 0xF)
+                | ((safe >>> 1) & 1) << 4
+                | (standable & 1) << 5
+                | ((standable >>> 2) & 1) << 6
+                | ((climbable >>> 1) & 0x7) << 7;
+    }
+
+    /**
+     * Returns cost modifiers for a target at the given plane level, 1 to 3.
+     */
+    public static int modifiers(int water, int cobweb, int stairs, int level) {
+        return any((water >>> (level - 1)) & 0x7) * MOD_WATER
+                | any((cobweb >>> level) & 0x3) * MOD_COBWEB
+                | ((stairs >>> (level - 1)) & 1) * MOD_STAIRS;
+    }
+
+    public static float cost(float[] costs, int type, int modifiers) {
+        return costs[type * MODIFIERS + modifiers];
+    }
+
+    /**
+     * Builds the cost table for a config, has to be called whenever movement costs change.
+     */
+    public static float[] computeCosts(PFConfig config) {
+        float[] costs = new float[MOVE_TYPES * MODIFIERS];
+        for (int type = 0; type < MOVE_TYPES; type++) {
+            boolean yChange = type != STRAIGHT && type != DIAGONAL;
+            for (int modifiers = 0; modifiers < MODIFIERS; modifiers++) {
+                float cost = switch (type) {
+                    case STRAIGHT -> config.straightCost;
+                    case STRAIGHT_DOWN, DIAGONAL, STRAIGHT_UP -> config.diagonalCost;
+                    case DIAGONAL_DOWN, DIAGONAL_UP -> config.cubeDiagonalCost;
+                    default -> config.verticalCost;
+                };
+                if (yChange) cost += config.yChangeCost;
+                if ((modifiers & MOD_WATER) != 0) cost *= config.waterMulti;
+                if ((modifiers & MOD_COBWEB) != 0) cost += config.cobwebMulti;
+                if (yChange && (modifiers & MOD_STAIRS) != 0) cost = config.stairsCost;
+                costs[type * MODIFIERS + modifiers] = cost;
+            }
+        }
+        return costs;
+    }
+
+    private static int straightMoves(int key) {
+        int moves = 0;
+        if (bit(key, 0) && bit(key, 3)) moves |= DOWN;
+        if (bit(key, 1)) moves |= LEVEL;
+        if (bit(key, 2) && !bit(key, 4) && bit(key, 5) && bit(key, 6)) moves |= UP;
+        return moves;
+    }
+
+    private static int diagonalMoves(int key) {
+        boolean gap0 = bit(key, 7);
+        boolean gap1 = bit(key, 8);
+
+        int moves = 0;
+        if (bit(key, 0) && bit(key, 3) && gap0) moves |= DOWN;
+        if (bit(key, 1) && gap0) moves |= LEVEL;
+        if (bit(key, 2) && !bit(key, 4) && bit(key, 5) && gap1 && bit(key, 6)) moves |= UP;
+        return moves;
+    }
+
+    private static int verticalMoves(int key) {
+        boolean passableBelow = bit(key, 0);
+        boolean passable0 = bit(key, 1);
+        boolean passable1 = bit(key, 2);
+        boolean passable2 = bit(key, 3);
+        boolean climbableBelow = bit(key, 7);
+        boolean climbable0 = bit(key, 8);
+        boolean climbable1 = bit(key, 9);
+
+        int moves = 0;
+        if ((climbableBelow && passable0) || (bit(key, 5) && passableBelow && bit(key, 4))) moves |= DOWN;
+        if ((climbable1 && passable2) || (climbable0 && bit(key, 6) && passable1 && passable2)) moves |= UP;
+        return moves;
+    }
+
+    private static int gaps(int key) {
+        boolean a0 = bit(key, 0), a1 = bit(key, 1), a2 = bit(key, 2);
+        boolean b0 = bit(key, 3), b1 = bit(key, 4), b2 = bit(key, 5);
+
+        int gaps = 0;
+        if ((a0 && a1) || (b0 && b1)) gaps |= 1;
+        if ((a1 && a2) || (b1 && b2)) gaps |= 2;
+        return gaps;
+    }
+
+    private static boolean bit(int key, int index) {
+        return (key >>> index & 1) != 0;
+    }
+
+    /**
+     * Returns 1 for a positive value and 0 for zero, without branching.
+     */
+    private static int any(int bits) {
+        return -bits >>> 31;
+    }
+}
@@ -0,0 +1,87 @@
+package net.pathfinder.main.graph;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.FluidFillable;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.state.property.Properties;
+import net.pathfinder.main.datagen.BlockTagProvider;
+
+/**
+ * A table of navigation properties for every block state, stored as bitmasks indexed by block state raw id.
+ * Resolving tags and block types once per state allows rule checks to be done with a single array read.
+ */
+public class NavigationFlags {
+
+    public static final int PASSABLE = 1;
+    public static final int STANDABLE = 1 << 1;
+    public static final int STANDABLE_SOLID = 1 << 2;
+    /**
+     * Set for both climbable blocks and water passable ones, as both allow vertical movement.
+     */
+    public static final int CLIMBABLE = 1 << 3;
+    public static final int DANGEROUS = 1 << 4;
+    public static final int WATER_PASSABLE = 1 << 5;
+    public static final int FENCE = 1 << 6;
+    public static final int COBWEB = 1 << 7;
+    public static final int STAIRS = 1 << 8;
+    public static final int CARPET = 1 << 9;
+    public static final int SOLID = 1 << 10;
+    public static final int WATER = 1 << 11;
+
+    private static volatile int[] table = new int[0];
+
+    /**
+     * Recomputes flags for all block states. Has to be called after joining a world and after tags are reloaded.
+     */
+    public static void rebuild() {
+        int[] newTable = new int[Block.STATE_IDS.size()];
+        for (BlockState state : Block.STATE_IDS) newTable[Block.getRawIdFromState(state)] = compute(state);
+        table = newTable;
+    }
+
+    public static int get(BlockState state) {
+        int[] table = NavigationFlags.table;
+        int id = Block.getRawIdFromState(state);
+        return id >= 0 && id < table.length ? table[id] : compute(state);
+    }
+
+    private static int compute(BlockState state) {
+        Block block = state.getBlock();
+        boolean solid = block.collidable;
+        boolean passable = !solid || BlockTagProvider.isIn(BlockTagProvider.PASSABLE, state);
+        boolean carpet = BlockTagProvider.isIn(BlockTagProvider.CARPETS, state);
+        boolean climbable = state.isIn(BlockTags.CLIMBABLE);
+        boolean water = block.equals(Blocks.WATER);
+        boolean waterPassable = water || (passable && block instanceof FluidFillable
+                && (BlockTagProvider.isIn(BlockTagProvider.WATER_PASSABLE, state) || (state.contains(Properties.WATERLOGGED) && state.get(Properties.WATERLOGGED))));
+
+        int flags = 0;
+        if (passable) flags |= PASSABLE;
+        if (climbable) flags |= CLIMBABLE;
+        if (BlockTagProvider.isIn(BlockTagProvider.DANGEROUS, state)) flags |= DANGEROUS;
+        if (waterPassable) flags |= WATER_PASSABLE;
+        if (state.isIn(BlockTags.FENCES) || state.isIn(BlockTags.WALLS)) flags |= FENCE;
+        if (block.equals(Blocks.COBWEB)) flags |= COBWEB;
+        if (state.isIn(BlockTags.STAIRS)) flags |= STAIRS;
+        if (carpet) flags |= CARPET;
+        if (water) flags |= WATER;
+        //light blocks are collidable, but have no surface to stand on
+        if (block.equals(Blocks.LIGHT)) return withImplied(flags) | (solid ? SOLID : 0);
+        return withImplied(solid ? flags | SOLID : flags);
+    }
+
+    /**
+     * Adds flags implied by the others: solid blocks other than carpets can be stood on, as can climbable and
+     * water passable ones, and water passable blocks can also be climbed. Allows describing blocks without a client,
+     * e.g. for test volumes.
+     */
+    public static int withImplied(int flags) {
+        boolean standableSolid = (flags & SOLID) != 0 && (flags & CARPET) == 0;
+        if (standableSolid) flags |= STANDABLE_SOLID;
+        if ((flags & WATER_PASSABLE) != 0) flags |= CLIMBABLE;
+        if (standableSolid || (flags & CLIMBABLE) != 0) flags |= STANDABLE;
+        return flags;
+    }
+}
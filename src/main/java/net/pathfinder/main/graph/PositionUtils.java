@@ -1,100 +1,89 @@
 package net.pathfinder.main.graph;
 
-import net.minecraft.block.*;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
-import net.minecraft.client.world.ClientWorld;
-import net.minecraft.registry.tag.BlockTags;
-import net.minecraft.state.property.Properties;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
-import net.pathfinder.main.graph.waypoint.GraphEditor;
 import net.pathfinder.main.graph.waypoint.data.Waypoint;
 
 import java.util.Objects;
 
-import static net.pathfinder.main.datagen.BlockTagProvider.*;
+import static net.pathfinder.main.graph.NavigationFlags.*;
 import static net.pathfinder.main.config.PFConfig.cfg;
 
-//todo compress tags for performance
 /**
  * Contains "rule" methods used for determining valid path positions and distance between them.
  */
 public class PositionUtils {
 
-    public static boolean isPassable(ClientWorld world, BlockPos pos, int xVec, int yVec, int zVec) {
-        BlockState state = world.getBlockState(add(pos, xVec, yVec, zVec));
-        return !state.getBlock().collidable || isIn(PASSABLE, state);
+    public static boolean isPassable(int flags) {
+        return (flags & PASSABLE) != 0;
     }
 
-    public static boolean isPassable(ClientWorld world, BlockPos pos) {
-        BlockState state = world.getBlockState(pos);
-        return !state.getBlock().collidable || isIn(PASSABLE, state);
+    public static boolean isPassable(BlockSource source, BlockPos pos) {
+        return isPassable(source.getFlags(pos));
     }
 
-    public static boolean isStandable(ClientWorld world, BlockPos pos, int xVec, int yVec, int zVec) {
-        BlockState state = world.getBlockState(add(pos, xVec, yVec, zVec));
-        return (state.getBlock().collidable && !isIn(CARPETS, state) && !state.getBlock().equals(Blocks.LIGHT))
-                || state.isIn(BlockTags.CLIMBABLE) || isWaterPassable(state);
+    public static boolean isStandable(int flags) {
+        return (flags & STANDABLE) != 0;
     }
 
-    public static boolean isStandable(ClientWorld world, BlockPos pos) {
-        BlockState state = world.getBlockState(pos);
-        return (state.getBlock().collidable && !isIn(CARPETS, state) && !state.getBlock().equals(Blocks.LIGHT))
-                || state.isIn(BlockTags.CLIMBABLE) || isWaterPassable(state);
+    public static boolean isStandable(BlockSource source, BlockPos pos, int xVec, int yVec, int zVec) {
+        return isStandable(source.getFlags(pos.getX() + xVec, pos.getY() + yVec, pos.getZ() + zVec));
     }
 
-    public static boolean isStandableSolid(ClientWorld world, BlockPos pos, int xVec, int yVec, int zVec) {
-        BlockState state = world.getBlockState(add(pos, xVec, yVec, zVec));
-        return state.getBlock().collidable && !isIn(CARPETS, state) && !state.getBlock().equals(Blocks.LIGHT);
+    public static boolean isStandableSolid(BlockSource source, BlockPos pos, int xVec, int yVec, int zVec) {
+        return (source.getFlags(pos.getX() + xVec, pos.getY() + yVec, pos.getZ() + zVec) & STANDABLE_SOLID) != 0;
     }
 
-    public static boolean notFence(ClientWorld world, BlockPos pos, int xVec, int yVec, int zVec) {
-        BlockState state = world.getBlockState(add(pos, xVec, yVec, zVec));
-        return !state.isIn(BlockTags.FENCES) && !state.isIn(BlockTags.WALLS);
+    public static boolean notFence(int flags) {
+        return (flags & FENCE) == 0;
     }
 
-    public static boolean isSafe(ClientWorld world, BlockPos pos) {
-        return !isIn(DANGEROUS, world.getBlockState(pos));
+    public static boolean isSafe(int flags) {
+        return (flags & DANGEROUS) == 0;
     }
 
-    public static boolean isSolid(ClientWorld world, BlockPos pos, int xVec, int yVec, int zVec) {
-        return world.getBlockState(add(pos, xVec, yVec, zVec)).getBlock().collidable;
+    public static boolean isSafe(BlockSource source, BlockPos pos) {
+        return isSafe(source.getFlags(pos));
     }
 
-    public static boolean isClimbable(ClientWorld world, BlockPos pos) {
-        BlockState state = world.getBlockState(pos);
-        return state.isIn(BlockTags.CLIMBABLE) || isWaterPassable(state);
+    public static boolean isSolid(int flags) {
+        return (flags & SOLID) != 0;
     }
 
-    public static boolean isWaterPassable(BlockState state) {
-        Block block = state.getBlock();
-        return block.equals(Blocks.WATER) || ((!block.collidable || isIn(PASSABLE, state))
-                && block instanceof FluidFillable && (isIn(WATER_PASSABLE, state) || (state.contains(Properties.WATERLOGGED) && state.get(Properties.WATERLOGGED))));
+    public static boolean isClimbable(int flags) {
+        return (flags & CLIMBABLE) != 0;
     }
 
-    public static boolean isValidPosition(ClientWorld world, BlockPos pos) {
-        boolean b1 = isStandable(world, pos, 0, -1, 0);
-        boolean b2 = isPassable(world, pos) && isSafe(world, pos);
-        boolean b3 = isPassable(world, pos, 0, 1, 0);
+    public static boolean isWaterPassable(int flags) {
+        return (flags & WATER_PASSABLE) != 0;
+    }
+
+    public static boolean isValidPosition(BlockSource source, BlockPos pos) {
+        boolean b1 = isStandable(source, pos, 0, -1, 0);
+        boolean b2 = isPassable(source, pos) && isSafe(source, pos);
+        boolean b3 = isPassable(source, addY(pos, 1));
 
         return b1 && b2 && b3;
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    public static boolean isValidWalkPosition(ClientWorld world, BlockPos pos) {
-        boolean b1 = isStandableSolid(world, pos, 0, -1, 0);
-        boolean b2 = isPassable(world, pos) && isSafe(world, pos);
-        boolean b3 = isPassable(world, pos, 0, 1, 0);
+    public static boolean isValidWalkPosition(BlockSource source, int x, int y, int z) {
+        boolean b1 = (source.getFlags(x, y - 1, z) & STANDABLE_SOLID) != 0;
+        int flags = source.getFlags(x, y, z);
+        boolean b2 = isPassable(flags) && isSafe(flags);
+        boolean b3 = isPassable(source.getFlags(x, y + 1, z));
 
         return b1 && b2 && b3;
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    public static boolean isValidSwimPosition(ClientWorld world, BlockPos pos) {
-        boolean b1 = isWaterPassable(world.getBlockState(addY(pos, -1)));
-        boolean b2 = isPassable(world, pos) && isSafe(world, pos);
+    public static boolean isValidSwimPosition(BlockSource source, int x, int y, int z) {
+        boolean b1 = isWaterPassable(source.getFlags(x, y - 1, z));
+        int flags = source.getFlags(x, y, z);
+        boolean b2 = isPassable(flags) && isSafe(flags);
 
         return b1 && b2;
     }
@@ -103,39 +92,10 @@ public class PositionUtils {
         return new BlockPos(pos.getX() + x, pos.getY() + y, pos.getZ() + z);
     }
 
-    public static BlockPos addXY(BlockPos pos, int x, int y) {
-        return new BlockPos(pos.getX() + x, pos.getY() + y, pos.getZ());
-    }
-
-    public static BlockPos addZY(BlockPos pos, int z, int y) {
-        return new BlockPos(pos.getX(), pos.getY() + y, pos.getZ() + z);
-    }
-
-    public static BlockPos addXZ(BlockPos pos, int x, int z) {
-        return new BlockPos(pos.getX() + x, pos.getY(), pos.getZ() + z);
-    }
-
-    public static BlockPos addX(BlockPos pos, int x) {
-        return new BlockPos(pos.getX() + x, pos.getY(), pos.getZ());
-    }
-
     public static BlockPos addY(BlockPos pos, int y) {
         return new BlockPos(pos.getX(), pos.getY() + y, pos.getZ());
     }
 
-    public static BlockPos addZ(BlockPos pos, int z) {
-        return new BlockPos(pos.getX(), pos.getY(), pos.getZ() + z);
-    }
-
-    public static boolean outOfRangeTrue(Vec3i pos) {
-        if (GraphEditor.active && GraphEditor.selected != null) {
-            Waypoint origin = GraphEditor.selected;
-            return cfg.maxPathDistanceSquared < getSquaredDistance(origin.x(), origin.y(), origin.z(), pos.getX(), pos.getY(), pos.getZ());
-        }
-        BlockPos start = DebugManager.start;
-        return cfg.maxPathDistanceSquared < getSquaredDistance(start.getX(), start.getY(), start.getZ(), pos.getX(), pos.getY(), pos.getZ());
-    }
-
     public static float getDistance(float x1, float y1, float z1, float x2, float y2, float z2) {
         float x = x1 - x2;
         float y = y1 - y2;
@@ -0,0 +1,67 @@
+package net.pathfinder.main.graph;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Arrays;
+
+/**
+ * Per-search memo of standing position validity, stored as a dense bitset with two bits per position.
+ * Covers a cube around the search origin, so it can be addressed directly instead of hashing positions.
+ * Positions outside the cube are always {@link #UNKNOWN}.
+ */
+public class WalkabilityMemo {
+
+    /**
+     * Largest range the memo is used for, limiting it to about 4 MB. Searches with larger ranges run without it.
+     */
+    private static final int MAX_RANGE = 128;
+
+    public static final int UNKNOWN = 0;
+    public static final int VALID = 1;
+    public static final int INVALID = 2;
+
+    private long[] bits = new long[0];
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int size;
+
+    /**
+     * Clears the memo and moves it to cover all positions within the range of the origin on every axis.
+     */
+    public void reset(BlockPos origin, int range) {
+        if (range > MAX_RANGE) {
+            size = 0;
+            return;
+        }
+        minX = origin.getX() - range;
+        minY = origin.getY() - range;
+        minZ = origin.getZ() - range;
+        size = range * 2 + 1;
+
+        int length = (int) (((long) size * size * size + 31) >>> 5);
+        if (bits.length < length) bits = new long[length];
+        else Arrays.fill(bits, 0, length, 0L);
+    }
+
+    public int get(int x, int y, int z) {
+        int index = index(x, y, z);
+        if (index == -1) return UNKNOWN;
+        return (int) (bits[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    public void set(int x, int y, int z, int state) {
+        int index = index(x, y, z);
+        if (index == -1) return;
+        int shift = (index & 31) << 1;
+        bits[index >>> 5] = (bits[index >>> 5] & ~(3L << shift)) | ((long) state << shift);
+    }
+
+    private int index(int x, int y, int z) {
+        int dx = x - minX;
+        int dy = y - minY;
+        int dz = z - minZ;
+        if (dx < 0 || dy < 0 || dz < 0 || dx >= size || dy >= size || dz >= size) return -1;
+        return (dx * size + dy) * size + dz;
+    }
+}
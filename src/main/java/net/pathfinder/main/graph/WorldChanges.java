@@ -0,0 +1,97 @@
+package net.pathfinder.main.graph;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks changes of the client world for caches built from its blocks. Block changes, chunk loads and chunk unloads
+ * are coalesced per chunk section and flushed once per tick, giving changed sections a new revision
+ * and notifying subscribed listeners. Events are reported on the client thread, revisions can be read from any thread.
+ */
+public class WorldChanges {
+
+    public interface Listener {
+        /**
+         * Called on the client thread once per tick with changes, if there were any. Sections are packed as {@link BlockPos}
+         * longs of section coordinates, chunks as {@link ChunkPos} longs. All sections of loaded or unloaded chunks
+         * should be treated as changed.
+         */
+        void onChanged(LongSet sections, LongSet chunks);
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final LongOpenHashSet pendingSections = new LongOpenHashSet();
+    private static final LongOpenHashSet pendingChunks = new LongOpenHashSet();
+    private static final Long2LongOpenHashMap sectionRevisions = new Long2LongOpenHashMap();
+    private static final Long2LongOpenHashMap chunkRevisions = new Long2LongOpenHashMap();
+    private static long revision = 0;
+    /**
+     * Revision of the last clear, reported for sections that didn't change since.
+     */
+    private static long base = 0;
+
+    public static void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void onBlockChanged(BlockPos pos) {
+        pendingSections.add(BlockPos.asLong(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
+    }
+
+    public static void onChunkChanged(ChunkPos pos) {
+        pendingChunks.add(pos.toLong());
+    }
+
+    /**
+     * Assigns a new revision to sections changed since the last flush and notifies listeners about them.
+     */
+    public static void flush() {
+        if (pendingSections.isEmpty() && pendingChunks.isEmpty()) return;
+
+        LongSet sections = new LongOpenHashSet(pendingSections);
+        LongSet chunks = new LongOpenHashSet(pendingChunks);
+        pendingSections.clear();
+        pendingChunks.clear();
+
+        synchronized (WorldChanges.class) {
+            revision++;
+            for (long section : sections) sectionRevisions.put(section, revision);
+            for (long chunk : chunks) chunkRevisions.put(chunk, revision);
+        }
+        for (Listener listener : listeners) listener.onChanged(sections, chunks);
+    }
+
+    /**
+     * Returns the latest revision, to be taken before reading blocks that a cached result will depend on.
+     */
+    public static synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the revision of the last change of a section, or of the last clear if it didn't change since.
+     */
+    public static synchronized long getRevision(long section) {
+        long chunk = ChunkPos.toLong(BlockPos.unpackLongX(section), BlockPos.unpackLongZ(section));
+        return Math.max(base, Math.max(sectionRevisions.get(section), chunkRevisions.get(chunk)));
+    }
+
+    /**
+     * Drops pending changes and section revisions. The clear itself counts as a change of every section,
+     * so results read before it, e.g. by searches still running while joining a world, are never taken as current.
+     */
+    public static synchronized void clear() {
+        revision++;
+        base = revision;
+        pendingSections.clear();
+        pendingChunks.clear();
+        sectionRevisions.clear();
+        chunkRevisions.clear();
+    }
+}
@@ -0,0 +1,230 @@
+package net.pathfinder.main.graph;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+import net.pathfinder.main.Stats;
+
+/**
+ * A copy of block state palettes for all chunk sections inside a box, taken on the client thread when a search is submitted.
+ * Searches running on the executor read blocks only from a snapshot, which keeps them from racing with chunk
+ * updates and skips the chunk manager lookup on every block access.
+ * Blocks in empty sections, unloaded chunks, skipped sections or outside the box are treated as air.
+ */
+public class WorldSnapshot implements BlockSource {
+
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final int minSectionX;
+    private final int minSectionY;
+    private final int minSectionZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final PalettedContainer<BlockState>[] sections;
+    /**
+     * Sections of loaded chunks that passed the filter, whether they were copied or empty.
+     */
+    private final boolean[] captured;
+    private int boundMinY;
+    private int boundMaxY;
+    private long revision;
+    private long reads = 0;
+
+    @SuppressWarnings("unchecked")
+    private WorldSnapshot(int minSectionX, int minSectionY, int minSectionZ, int sizeX, int sizeY, int sizeZ) {
+        this.minSectionX = minSectionX;
+        this.minSectionY = minSectionY;
+        this.minSectionZ = minSectionZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.sections = new PalettedContainer[sizeX * sizeY * sizeZ];
+        this.captured = new boolean[sizeX * sizeY * sizeZ];
+    }
+
+    /**
+     * Filter of sections to copy, given section coordinates.
+     */
+    @FunctionalInterface
+    public interface SectionFilter {
+        boolean test(int sectionX, int sectionY, int sectionZ);
+    }
+
+    /**
+     * Copies all sections containing a position within a given range of the center. Has to be called on the client thread.
+     * Searches don't expand positions further than their range from the origin, so the corners of the box are skipped.
+     */
+    public static WorldSnapshot capture(ClientWorld world, BlockPos center, int range) {
+        return capture(world, center, range, null);
+    }
+
+    /**
+     * Captures the same area as {@link #capture(ClientWorld, BlockPos, int)}, sharing copies of sections
+     * which didn't change since the previous snapshot was taken instead of copying them again.
+     */
+    public static WorldSnapshot capture(ClientWorld world, BlockPos center, int range, WorldSnapshot previous) {
+        long rangeSquared = (long) range * range;
+        return capture(world, center.getX() - range, center.getY() - range, center.getZ() - range,
+                center.getX() + range, center.getY() + range, center.getZ() + range,
+                (sectionX, sectionY, sectionZ) -> getSquaredDistance(center, sectionX, sectionY, sectionZ) <= rangeSquared, previous);
+    }
+
+    /**
+     * Copies all sections intersecting a box. Has to be called on the client thread.
+     */
+    public static WorldSnapshot capture(ClientWorld world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return capture(world, minX, minY, minZ, maxX, maxY, maxZ, (sectionX, sectionY, sectionZ) -> true);
+    }
+
+    /**
+     * Copies sections intersecting a box which pass the filter. Has to be called on the client thread.
+     */
+    public static WorldSnapshot capture(ClientWorld world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, SectionFilter filter) {
+        return capture(world, minX, minY, minZ, maxX, maxY, maxZ, filter, null);
+    }
+
+    private static WorldSnapshot capture(ClientWorld world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                         SectionFilter filter, WorldSnapshot previous) {
+        long startTime = System.nanoTime();
+        //pending changes are already visible in the world, so they get their revision before the snapshot takes its own
+        WorldChanges.flush();
+        int minSectionX = ChunkSectionPos.getSectionCoord(minX);
+        int minSectionY = Math.max(ChunkSectionPos.getSectionCoord(minY), world.getBottomSectionCoord());
+        int minSectionZ = ChunkSectionPos.getSectionCoord(minZ);
+        int maxSectionX = ChunkSectionPos.getSectionCoord(maxX);
+        int maxSectionY = Math.min(ChunkSectionPos.getSectionCoord(maxY), world.getTopSectionCoord() - 1);
+        int maxSectionZ = ChunkSectionPos.getSectionCoord(maxZ);
+
+        WorldSnapshot snapshot = new WorldSnapshot(minSectionX, minSectionY, minSectionZ, maxSectionX - minSectionX + 1,
+                Math.max(maxSectionY - minSectionY + 1, 0), maxSectionZ - minSectionZ + 1);
+        snapshot.boundMinY = ChunkSectionPos.getSectionCoord(minY);
+        snapshot.boundMaxY = ChunkSectionPos.getSectionCoord(maxY);
+        snapshot.revision = WorldChanges.getRevision();
+        int copied = 0;
+
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+                WorldChunk chunk = world.getChunkManager().getChunk(sectionX, sectionZ, ChunkStatus.FULL, false);
+                if (chunk == null) continue;
+
+                ChunkSection[] chunkSections = chunk.getSectionArray();
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    if (!filter.test(sectionX, sectionY, sectionZ)) continue;
+                    int snapshotIndex = snapshot.index(sectionX - minSectionX, sectionY - minSectionY, sectionZ - minSectionZ);
+                    snapshot.captured[snapshotIndex] = true;
+
+                    //copies are never modified, so unchanged ones can be shared between snapshots
+                    if (previous != null && previous.isUnchanged(sectionX, sectionY, sectionZ)) {
+                        snapshot.sections[snapshotIndex] = previous.sections[previous.index(sectionX - previous.minSectionX,
+                                sectionY - previous.minSectionY, sectionZ - previous.minSectionZ)];
+                        continue;
+                    }
+                    int index = sectionY - chunk.getBottomSectionCoord();
+                    if (index < 0 || index >= chunkSections.length) continue;
+
+                    ChunkSection section = chunkSections[index];
+                    if (section == null || section.isEmpty()) continue;
+
+                    snapshot.sections[snapshotIndex] = section.getBlockStateContainer().copy();
+                    copied++;
+                }
+            }
+        }
+        Stats.recordTime(Stats.Metric.SNAPSHOT_TIME, startTime);
+        Stats.record(Stats.Metric.SNAPSHOT_SECTIONS, copied);
+        return snapshot;
+    }
+
+    /**
+     * Checks if a section was captured by this snapshot and didn't change since.
+     */
+    private boolean isUnchanged(int sectionX, int sectionY, int sectionZ) {
+        int x = sectionX - minSectionX;
+        int y = sectionY - minSectionY;
+        int z = sectionZ - minSectionZ;
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ || !captured[index(x, y, z)]) return false;
+        return WorldChanges.getRevision(BlockPos.asLong(sectionX, sectionY, sectionZ)) <= revision;
+    }
+
+    /**
+     * Returns the squared distance from a position to the closest block of a section.
+     */
+    private static long getSquaredDistance(BlockPos pos, int sectionX, int sectionY, int sectionZ) {
+        long dx = getDistance(pos.getX(), sectionX);
+        long dy = getDistance(pos.getY(), sectionY);
+        long dz = getDistance(pos.getZ(), sectionZ);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int getDistance(int coordinate, int sectionCoordinate) {
+        int min = ChunkSectionPos.getBlockCoord(sectionCoordinate);
+        return Math.max(0, Math.max(min - coordinate, coordinate - (min + 15)));
+    }
+
+    @Override
+    public int getFlags(int x, int y, int z) {
+        reads++;
+        return NavigationFlags.get(getBlockState(x, y, z));
+    }
+
+    private BlockState getBlockState(int x, int y, int z) {
+        int sectionX = (x >> 4) - minSectionX;
+        int sectionY = (y >> 4) - minSectionY;
+        int sectionZ = (z >> 4) - minSectionZ;
+        if (sectionX < 0 || sectionY < 0 || sectionZ < 0 || sectionX >= sizeX || sectionY >= sizeY || sectionZ >= sizeZ) return AIR;
+
+        PalettedContainer<BlockState> section = sections[index(sectionX, sectionY, sectionZ)];
+        return section == null ? AIR : section.get(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Returns the {@link WorldChanges} revision the snapshot was captured at.
+     * Sections with a newer revision changed after being copied, all older changes are included.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the amount of block lookups made so far. Not synchronized, only meant to be read by the thread searching.
+     */
+    public long getReads() {
+        return reads;
+    }
+
+    /**
+     * Checks if all blocks inside a box were captured from loaded chunks without being skipped by a filter,
+     * meaning that data computed from them will stay valid outside of this snapshot.
+     * Sections above or below the world only need to be inside the captured box.
+     */
+    public boolean isCaptured(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        int minSectionX = (minX >> 4) - this.minSectionX;
+        int minSectionZ = (minZ >> 4) - this.minSectionZ;
+        int maxSectionX = (maxX >> 4) - this.minSectionX;
+        int maxSectionZ = (maxZ >> 4) - this.minSectionZ;
+        if (minSectionX < 0 || minSectionZ < 0 || maxSectionX >= sizeX || maxSectionZ >= sizeZ) return false;
+        if ((minY >> 4) < boundMinY || (maxY >> 4) > boundMaxY) return false;
+
+        int minSectionY = Math.max((minY >> 4) - this.minSectionY, 0);
+        int maxSectionY = Math.min((maxY >> 4) - this.minSectionY, sizeY - 1);
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    if (!captured[index(sectionX, sectionY, sectionZ)]) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int index(int sectionX, int sectionY, int sectionZ) {
+        return (sectionX * sizeY + sectionY) * sizeZ + sectionZ;
+    }
+}
@@ -2,8 +2,9 @@ package net.pathfinder.main.graph.astar;
 
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
-import net.minecraft.block.Blocks;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.world.ClientWorld;
@@ -12,14 +13,19 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3i;
 import net.pathfinder.main.Output;
 import net.pathfinder.main.PathfinderMod;
+import net.pathfinder.main.Stats;
+import net.pathfinder.main.graph.BlockSource;
+import net.pathfinder.main.graph.CandidateBuffer;
 import net.pathfinder.main.graph.CandidateSupplier;
 import net.pathfinder.main.graph.DebugManager;
+import net.pathfinder.main.graph.NavigationFlags;
 import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.WorldSnapshot;
 import net.pathfinder.main.graph.waypoint.GraphEditor;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static net.pathfinder.main.config.PFConfig.cfg;
 
@@ -28,56 +34,84 @@ import static net.pathfinder.main.config.PFConfig.cfg;
  */
 public class AstarBuilder {
 
-    private static boolean inProcess = false;
+    private static final int SNAPSHOT_MARGIN = 3;
+    /**
+     * Radius of the corridor around the line between start and target captured for hierarchical searches,
+     * letting them route around obstacles.
+     */
+    private static final int HIERARCHICAL_RADIUS = 32;
+    /**
+     * Distance from the center of a section to its corners, rounded up.
+     */
+    private static final int SECTION_HALF_DIAGONAL = 14;
+    private static final float WEIGHT_STEP = 0.5f;
+    private static final ThreadLocal<SearchArena> arenas = ThreadLocal.withInitial(SearchArena::new);
+    private static final ThreadLocal<SearchArena> backwardArenas = ThreadLocal.withInitial(SearchArena::new);
+
+    /**
+     * Latest debug search, cancelled when a newer one is requested.
+     */
+    private static PathJob debugJob;
+    /**
+     * Snapshot of the latest incremental search, sharing unchanged sections with the next one.
+     */
+    private static WorldSnapshot incrementalSnapshot;
 
     /**
      * Calculates and displays the path when either position is moved outside of waypoint graph editing mode.
+     * Uses {@link IncrementalPlanner} if enabled, repairing the previous search instead of starting a new one.
      */
     public static void findOnUpdate() {
-        if (inProcess) return;
-        inProcess = true;
-
-        PathfinderMod.executor.submit(() -> {
-            ClientPlayerEntity player = Objects.requireNonNull(MinecraftClient.getInstance().player);
-            Optional<List<BlockPos>> path = runAstar(player.clientWorld, DebugManager.start, DebugManager.target);
-
-            if (path.isPresent()) processResults(player.clientWorld, path.get());
-            else Output.chat("Path couldn't be found.");
-
-            inProcess = false;
-        });
+        ClientPlayerEntity player = Objects.requireNonNull(MinecraftClient.getInstance().player);
+        BlockPos start = DebugManager.start;
+        BlockPos target = DebugManager.target;
+        boolean incremental = cfg.useIncrementalSearch && !isLongRange(start, target);
+        WorldSnapshot snapshot = incremental
+                ? WorldSnapshot.capture(player.clientWorld, target, cfg.maxPathDistance + SNAPSHOT_MARGIN, incrementalSnapshot)
+                : capture(player.clientWorld, start, target);
+        incrementalSnapshot = incremental ? snapshot : null;
+
+        submitDebug(snapshot, job -> incremental
+                ? measure(snapshot, job, () -> IncrementalPlanner.INSTANCE.findPath(snapshot, start, target, job))
+                : runCached(snapshot, start, target, job));
     }
 
     /**
-     * Calculates and returns the path, used by waypoint graph builder.
+     * Drops the search state kept for incremental replanning of debug paths.
      */
-    public static List<BlockPos> findAndReturn(BlockPos start, BlockPos end) {
-        if (inProcess) return List.of();
-        inProcess = true;
+    public static void clearIncremental() {
+        incrementalSnapshot = null;
+        PathfinderMod.executor.submit(IncrementalPlanner.INSTANCE::clear);
+    }
 
+    /**
+     * Queues a search for the waypoint graph editor, has to be called on the client thread.
+     * Editor searches aren't cancelled by newer ones, so multiple connections can be queued at once.
+     * A found path is already processed according to config when the job completes, the result is reported
+     * on the client thread.
+     */
+    public static PathJob findAsync(BlockPos start, BlockPos end) {
         ClientPlayerEntity player = Objects.requireNonNull(MinecraftClient.getInstance().player);
+        WorldSnapshot snapshot = capture(player.clientWorld, start, end);
 
-        Future<List<BlockPos>> future = PathfinderMod.executor.submit(() -> {
-            DebugManager.start = start;
-            Optional<List<BlockPos>> path = runAstar(player.clientWorld, start, end);
-            DebugManager.start = null;
+        PathJob job = new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false)
+                .submit(j -> processResult(snapshot, runCached(snapshot, start, end, j)));
+        job.future().thenAcceptAsync(AstarBuilder::displayResult, MinecraftClient.getInstance());
+        return job;
+    }
 
-            if (path.isPresent()) return processResults(player.clientWorld, path.get());
-            else {
-                Output.chat("Path couldn't be found.");
-                return List.of();
-            }
-        });
+    /**
+     * Queues a search from a position to whichever of the goals can be reached with the lowest cost,
+     * has to be called on the client thread. The path in the result ends at the reached goal.
+     */
+    public static PathJob findNearestAsync(BlockPos start, long[] goals) {
+        ClientPlayerEntity player = Objects.requireNonNull(MinecraftClient.getInstance().player);
+        WorldSnapshot snapshot = WorldSnapshot.capture(player.clientWorld, start, cfg.maxPathDistance + SNAPSHOT_MARGIN);
 
-        try {
-            return future.get();
-        }
-        catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-        finally {
-            inProcess = false;
-        }
+        PathJob job = new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false)
+                .submit(j -> processResult(snapshot, measure(snapshot, j, () -> runMultiGoal(snapshot, start, new GoalIndex(goals), j))));
+        job.future().thenAcceptAsync(AstarBuilder::displayResult, MinecraftClient.getInstance());
+        return job;
     }
 
     /**
@@ -85,155 +119,522 @@ public class AstarBuilder {
      */
     @SuppressWarnings("SameReturnValue")
     public static int findRoute(CommandContext<FabricClientCommandSource> context) {
-        if (inProcess) return 1;
-        inProcess = true;
+        ClientPlayerEntity player = context.getSource().getPlayer();
+
+        BlockPos start = player.getBlockPos();
+        int x = IntegerArgumentType.getInteger(context, "x");
+        int y = IntegerArgumentType.getInteger(context, "y");
+        int z = IntegerArgumentType.getInteger(context, "z");
+        BlockPos target = new BlockPos(x, y, z);
+        WorldSnapshot snapshot = capture(player.clientWorld, start, target);
+
+        submitDebug(snapshot, job -> runCached(snapshot, start, target, job));
+        return 1;
+    }
+
+    /**
+     * Submits a debug search, cancelling the previous one if it's still queued or running.
+     * The found path is processed on the executor and displayed on the client thread.
+     */
+    private static void submitDebug(BlockSource source, Function<PathJob, PathResult> search) {
+        if (debugJob != null) debugJob.cancel();
+        debugJob = new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, true)
+                .submit(job -> processResult(source, search.apply(job)));
+        debugJob.future().thenAcceptAsync(AstarBuilder::displayResult, MinecraftClient.getInstance());
+    }
+
+    /**
+     * Applies smoothing and optimizing to the path of a found or partial result.
+     */
+    private static PathResult processResult(BlockSource source, PathResult result) {
+        if (result.hasPath()) processResults(source, result.path());
+        return result;
+    }
+
+    /**
+     * Reports a result in chat and shows its path, has to be called on the client thread.
+     */
+    private static void displayResult(PathResult result) {
+        switch (result.status()) {
+            case FOUND -> displayPath(result.path());
+            case PARTIAL -> {
+                Output.chat("Search ran out of budget, showing the path to the closest reached position.");
+                displayPath(result.path());
+            }
+            case UNREACHABLE -> Output.chat("Path couldn't be found.");
+            case BUDGET_EXCEEDED -> Output.chat("Search ran out of budget.");
+            case CANCELLED -> {
+            }
+        }
+    }
 
-        PathfinderMod.executor.submit(() -> {
-            ClientPlayerEntity player = context.getSource().getPlayer();
+    /**
+     * Copies the area reachable by a search from the given start, has to be called on the client thread.
+     * Includes a margin for blocks checked around the furthest expanded positions, in either search direction.
+     * Hierarchical searches get the sections along the line between both positions instead, so that the captured
+     * area grows with the distance rather than with the box spanning them.
+     */
+    private static WorldSnapshot capture(ClientWorld world, BlockPos start, BlockPos target) {
+        if (!isLongRange(start, target)) return WorldSnapshot.capture(world, start, cfg.maxPathDistance + SNAPSHOT_MARGIN);
+
+        float maxDistance = HIERARCHICAL_RADIUS + SECTION_HALF_DIAGONAL;
+        return WorldSnapshot.capture(world,
+                Math.min(start.getX(), target.getX()) - HIERARCHICAL_RADIUS,
+                Math.min(start.getY(), target.getY()) - HIERARCHICAL_RADIUS,
+                Math.min(start.getZ(), target.getZ()) - HIERARCHICAL_RADIUS,
+                Math.max(start.getX(), target.getX()) + HIERARCHICAL_RADIUS,
+                Math.max(start.getY(), target.getY()) + HIERARCHICAL_RADIUS,
+                Math.max(start.getZ(), target.getZ()) + HIERARCHICAL_RADIUS,
+                (sectionX, sectionY, sectionZ) -> getSegmentDistance(sectionX * 16 + 8, sectionY * 16 + 8, sectionZ * 16 + 8, start, target) <= maxDistance);
+    }
 
-            BlockPos start = player.getBlockPos();
-            int x = IntegerArgumentType.getInteger(context, "x");
-            int y = IntegerArgumentType.getInteger(context, "y");
-            int z = IntegerArgumentType.getInteger(context, "z");
-            BlockPos target = new BlockPos(x, y, z);
+    /**
+     * Returns the distance from a point to the closest point of the line segment between two positions.
+     */
+    private static float getSegmentDistance(float x, float y, float z, BlockPos from, BlockPos to) {
+        float dx = to.getX() - from.getX();
+        float dy = to.getY() - from.getY();
+        float dz = to.getZ() - from.getZ();
+        float length = dx * dx + dy * dy + dz * dz;
+        float t = length == 0 ? 0 : ((x - from.getX()) * dx + (y - from.getY()) * dy + (z - from.getZ()) * dz) / length;
+        t = Math.max(0, Math.min(1, t));
+        return PositionUtils.getDistance(x, y, z, from.getX() + dx * t, from.getY() + dy * t, from.getZ() + dz * t);
+    }
 
-            DebugManager.start = start;
-            Optional<List<BlockPos>> path = runAstar(player.clientWorld, start, target);
-            DebugManager.start = null;
+    /**
+     * Checks if a target is out of range of regular searches, but can still be reached by a hierarchical one.
+     */
+    private static boolean isLongRange(BlockPos start, BlockPos target) {
+        if (!cfg.useHierarchicalSearch) return false;
+        int distance = PositionUtils.getSquaredDistance(start, target);
+        return distance > cfg.maxPathDistanceSquared && distance <= cfg.maxHierarchicalDistance * cfg.maxHierarchicalDistance;
+    }
 
-            if (path.isPresent()) processResults(player.clientWorld, path.get());
-            else Output.chat("Path couldn't be found.");
+    /**
+     * Runs the search selected in config.
+     * Node data is stored in reusable {@link SearchArena}s, searches are expected to run on the executor thread
+     * using a {@link WorldSnapshot} of the area. Targets out of regular range are passed to {@link HierarchicalBuilder}.
+     * Searches stop early if the job is cancelled or runs out of budget.
+     */
+    public static PathResult runAstar(BlockSource source, BlockPos start, BlockPos target, PathJob job) {
+        if (isLongRange(start, target)) return measure(source, job, () -> HierarchicalBuilder.findPath(source, start, target, job));
 
-            inProcess = false;
+        return measure(source, job, () -> switch (cfg.searchMode) {
+            case STANDARD -> runForward(source, start, target, job);
+            case BIDIRECTIONAL -> runBidirectional(source, start, target, job);
+            case ANYTIME -> runAnytime(source, start, target, job);
         });
-        return 1;
     }
 
     /**
-     * A* implementation. Returns an Optional with a path, if found, or an empty optional otherwise.
+     * Runs a search while recording its time, expanded nodes, heap operations, block lookups and allocated memory.
+     * Heap operations of hierarchical searches are only counted for their arena searches.
+     */
+    private static PathResult measure(BlockSource source, PathJob job, Supplier<PathResult> search) {
+        long startTime = System.nanoTime();
+        long allocated = Stats.getAllocatedBytes();
+        long operations = getHeapOperations();
+        long reads = source instanceof WorldSnapshot snapshot ? snapshot.getReads() : -1;
+
+        PathResult result = search.get();
+
+        Stats.recordTime(Stats.Metric.ASTAR_TIME, startTime);
+        Stats.record(Stats.Metric.ASTAR_EXPANDED, job.getExpansions());
+        Stats.record(Stats.Metric.ASTAR_HEAP_OPERATIONS, getHeapOperations() - operations);
+        if (reads != -1) Stats.record(Stats.Metric.ASTAR_BLOCK_READS, ((WorldSnapshot) source).getReads() - reads);
+        if (allocated != -1) Stats.record(Stats.Metric.ASTAR_ALLOCATED, Stats.getAllocatedBytes() - allocated);
+        return result;
+    }
+
+    private static long getHeapOperations() {
+        return arenas.get().open.getOperations() + backwardArenas.get().open.getOperations() + IncrementalPlanner.INSTANCE.getHeapOperations();
+    }
+
+    /**
+     * Runs a search through {@link PathCache}, storing complete results along with the sections their search read.
+     * Hierarchical searches aren't cached, they reuse their cluster cache instead. Anytime searches aren't cached either,
+     * as their path is only as good as the time budget allowed.
      */
-    public static Optional<List<BlockPos>> runAstar(ClientWorld world, BlockPos start, BlockPos target) {
-        CandidateSupplier supplier = new CandidateSupplier(world);
-        Queue<AstarNode> open = new PriorityQueue<>();
-        Map<BlockPos, AstarNode> nodes = new HashMap<>();
+    private static PathResult runCached(WorldSnapshot snapshot, BlockPos start, BlockPos target, PathJob job) {
+        if (isLongRange(start, target) || cfg.searchMode == SearchMode.ANYTIME) return runAstar(snapshot, start, target, job);
 
-        AstarNode first = new AstarNode(start, null, 0d, PositionUtils.getDistance(start, target));
-        open.add(first);
-        nodes.put(start, first);
+        int settings = PathCache.getSettingsHash();
+        PathResult cached = PathCache.get(start, target, settings);
+        if (cached != null) return cached;
+
+        PathResult result = runAstar(snapshot, start, target, job);
+        if (result.status() == PathResult.Status.FOUND || result.status() == PathResult.Status.UNREACHABLE)
+            PathCache.put(start, target, settings, result, getReadSections(), snapshot.getRevision());
+        return result;
+    }
+
+    /**
+     * Collects sections of blocks read by the last regular search on this thread, in either direction.
+     */
+    static LongSet getReadSections() {
+        LongSet sections = new LongOpenHashSet();
+        PathCache.addSections(arenas.get(), 2, sections);
+        if (cfg.searchMode == SearchMode.BIDIRECTIONAL) PathCache.addSections(backwardArenas.get(), 3, sections);
+        return sections;
+    }
+
+    /**
+     * A* implementation. Keeps track of the position closest to the target for partial results.
+     */
+    private static PathResult runForward(BlockSource source, BlockPos start, BlockPos target, PathJob job) {
+        SearchArena arena = arenas.get();
+        arena.reset();
+        CandidateSupplier supplier = new CandidateSupplier(source, start, arena.memo);
+        IndexedHeap open = arena.open;
+        CandidateBuffer candidates = arena.candidates;
+
+        long targetPos = target.asLong();
+        int first = arena.getOrCreate(start.asLong());
+        arena.scores[first] = 0f;
+        open.push(first, PositionUtils.getDistance(start, target));
+        int closest = first;
+        float closestDistance = PositionUtils.getDistance(start, target);
 
         while (!open.isEmpty()) {
-            AstarNode next = open.poll();
+            if (job.shouldStop()) {
+                int last = closest;
+                return job.stopped(() -> arena.getPath(last));
+            }
+            int current = open.poll();
+            long currentPos = arena.positions[current];
+
+            if (currentPos == targetPos) return PathResult.found(arena.getPath(current));
+
+            float currentScore = arena.scores[current];
+            supplier.getCandidates(currentPos, candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                long pos = candidates.position(i);
+                int next = arena.getOrCreate(pos);
+
+                float newScore = currentScore + candidates.cost(i);
+                if (newScore < arena.scores[next]) {
+                    arena.parents[next] = current;
+                    arena.scores[next] = newScore;
+                    float distance = getDistance(pos, target);
+                    open.push(next, newScore + distance);
+                    if (distance < closestDistance) {
+                        closest = next;
+                        closestDistance = distance;
+                    }
+                }
+            }
+        }
+        return PathResult.unreachable();
+    }
+
+    /**
+     * A* towards multiple goals, using the distance to the nearest goal as the heuristic.
+     * The first goal taken from the open set is the one with the cheapest path.
+     */
+    private static PathResult runMultiGoal(BlockSource source, BlockPos start, GoalIndex goals, PathJob job) {
+        SearchArena arena = arenas.get();
+        arena.reset();
+        CandidateSupplier supplier = new CandidateSupplier(source, start, arena.memo);
+        IndexedHeap open = arena.open;
+        CandidateBuffer candidates = arena.candidates;
 
-            if (next.currentPos.equals(target)) {
-                List<BlockPos> route = new ArrayList<>();
-                AstarNode current = next;
+        int first = arena.getOrCreate(start.asLong());
+        arena.scores[first] = 0f;
+        open.push(first, goals.getDistance(start.asLong()));
 
-                while (current != null) {
-                    route.add(0, current.currentPos);
-                    current = nodes.get(current.previousPos);
+        while (!open.isEmpty()) {
+            if (job.shouldStop()) return job.stopped(null);
+            int current = open.poll();
+            long currentPos = arena.positions[current];
+
+            if (goals.isGoal(currentPos)) return PathResult.found(arena.getPath(current));
+
+            float currentScore = arena.scores[current];
+            supplier.getCandidates(currentPos, candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                long pos = candidates.position(i);
+                int next = arena.getOrCreate(pos);
+
+                float newScore = currentScore + candidates.cost(i);
+                if (newScore < arena.scores[next]) {
+                    arena.parents[next] = current;
+                    arena.scores[next] = newScore;
+                    open.push(next, newScore + goals.getDistance(pos));
                 }
-                return Optional.of(route);
             }
+        }
+        return PathResult.unreachable();
+    }
+
+    /**
+     * Bidirectional A*, searching forwards from the start and backwards from the target using reversed movement rules.
+     * The side with the smaller open set is expanded each step. Whenever the frontiers meet, the meeting position is
+     * kept if it gives the cheapest path so far, and the search stops once neither frontier can offer a cheaper one.
+     */
+    private static PathResult runBidirectional(BlockSource source, BlockPos start, BlockPos target, PathJob job) {
+        SearchArena forward = arenas.get();
+        SearchArena backward = backwardArenas.get();
+        forward.reset();
+        backward.reset();
+        CandidateSupplier supplier = new CandidateSupplier(source, start, forward.memo);
+        CandidateBuffer candidates = forward.candidates;
+
+        int first = forward.getOrCreate(start.asLong());
+        forward.scores[first] = 0f;
+        forward.open.push(first, PositionUtils.getDistance(start, target));
+        if (start.equals(target)) return PathResult.found(forward.getPath(first));
+
+        int last = backward.getOrCreate(target.asLong());
+        backward.scores[last] = 0f;
+        backward.open.push(last, PositionUtils.getDistance(start, target));
+
+        float best = Float.POSITIVE_INFINITY;
+        long meeting = 0L;
+
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            if (Math.max(forward.open.peekKey(), backward.open.peekKey()) >= best) break;
+            if (job.shouldStop()) return job.stopped(null);
+
+            boolean forwards = forward.open.size() <= backward.open.size();
+            SearchArena arena = forwards ? forward : backward;
+            SearchArena other = forwards ? backward : forward;
+            BlockPos goal = forwards ? target : start;
+
+            int current = arena.open.poll();
+            long currentPos = arena.positions[current];
+            float currentScore = arena.scores[current];
+
+            if (forwards) supplier.getCandidates(currentPos, candidates);
+            else supplier.getPredecessors(currentPos, candidates);
+
+            for (int i = 0; i < candidates.size(); i++) {
+                long pos = candidates.position(i);
+                int next = arena.getOrCreate(pos);
+
+                float newScore = currentScore + candidates.cost(i);
+                if (newScore < arena.scores[next]) {
+                    arena.parents[next] = current;
+                    arena.scores[next] = newScore;
+                    arena.open.push(next, newScore + getDistance(pos, goal));
+
+                    int match = other.find(pos);
+                    if (match != -1 && newScore + other.scores[match] < best) {
+                        best = newScore + other.scores[match];
+                        meeting = pos;
+                    }
+                }
+            }
+        }
+        if (best == Float.POSITIVE_INFINITY) return PathResult.unreachable();
 
-            supplier.getCandidates(next.currentPos).forEach(candidate -> {
-                AstarNode nextNode = nodes.getOrDefault(candidate.pos(), new AstarNode(candidate.pos()));
-                nodes.put(candidate.pos(), nextNode);
+        List<BlockPos> path = forward.getPath(forward.find(meeting));
+        List<BlockPos> rest = backward.getReversePath(backward.find(meeting));
+        path.addAll(rest.subList(1, rest.size()));
+        return PathResult.found(path);
+    }
+
+    /**
+     * Anytime repairing A* (ARA*). First finds a path with the heuristic inflated by the initial weight, then keeps lowering
+     * the weight and repairing the previous search until the path is optimal or the time budget runs out.
+     * The first path is always searched for in full, the cost of a returned path is at most the last completed weight
+     * times the optimal cost.
+     */
+    private static PathResult runAnytime(BlockSource source, BlockPos start, BlockPos target, PathJob job) {
+        long deadline = System.nanoTime() + cfg.anytimeBudget * 1_000_000L;
+        SearchArena arena = arenas.get();
+        arena.reset();
+        CandidateSupplier supplier = new CandidateSupplier(source, start, arena.memo);
+
+        int first = arena.getOrCreate(start.asLong());
+        int goal = arena.getOrCreate(target.asLong());
+        float weight = Math.max(cfg.anytimeInitialWeight, 1f);
+        arena.scores[first] = 0f;
+        arena.open.push(first, weight * PositionUtils.getDistance(start, target));
+
+        if (!improvePath(arena, supplier, target, goal, weight, Long.MAX_VALUE, job)) return job.stopped(null);
+        if (arena.scores[goal] == Float.POSITIVE_INFINITY) return PathResult.unreachable();
+        float bound = weight;
+
+        while (weight > 1f && System.nanoTime() < deadline) {
+            float newWeight = Math.max(weight - WEIGHT_STEP, 1f);
+            weight = newWeight;
+
+            for (int node = arena.inconsistent.nextSetBit(0); node >= 0; node = arena.inconsistent.nextSetBit(node + 1))
+                arena.open.push(node, 0f);
+            arena.inconsistent.clear();
+            arena.closed.clear();
+            arena.open.rekey(node -> arena.scores[node] + newWeight * getDistance(arena.positions[node], target));
+
+            if (!improvePath(arena, supplier, target, goal, weight, deadline, job)) break;
+            bound = weight;
+        }
+        if (job.isCancelled()) return PathResult.cancelled();
+        Output.log("Anytime search finished with suboptimality bound " + bound + ".");
+        return PathResult.found(arena.getPath(goal));
+    }
 
-                double newScore = next.currentScore + candidate.cost();
-                if (newScore < nextNode.currentScore) {
-                    nextNode.previousPos = next.currentPos;
-                    nextNode.currentScore = newScore;
-                    nextNode.estimatedScore = newScore + PositionUtils.getDistance(candidate.pos(), target);
-                    open.add(nextNode);
+    /**
+     * A single ARA* iteration, expanding nodes until none of them can improve the path to the goal under the given weight.
+     * Returns false if it was stopped by the deadline or the job, the path to the goal stays valid in either case.
+     */
+    private static boolean improvePath(SearchArena arena, CandidateSupplier supplier, BlockPos target, int goal, float weight,
+                                       long deadline, PathJob job) {
+        IndexedHeap open = arena.open;
+        CandidateBuffer candidates = arena.candidates;
+        int expansions = 0;
+
+        while (!open.isEmpty() && arena.scores[goal] > open.peekKey()) {
+            if ((++expansions & 255) == 0 && System.nanoTime() > deadline) return false;
+            if (job.shouldStop()) return false;
+
+            int current = open.poll();
+            arena.closed.set(current);
+            float currentScore = arena.scores[current];
+            supplier.getCandidates(arena.positions[current], candidates);
+
+            for (int i = 0; i < candidates.size(); i++) {
+                long pos = candidates.position(i);
+                int next = arena.getOrCreate(pos);
+
+                float newScore = currentScore + candidates.cost(i);
+                if (newScore < arena.scores[next]) {
+                    arena.parents[next] = current;
+                    arena.scores[next] = newScore;
+                    if (arena.closed.get(next)) arena.inconsistent.set(next);
+                    else open.push(next, newScore + weight * getDistance(pos, target));
                 }
-            });
+            }
         }
-        return Optional.empty();
+        return true;
+    }
+
+    static float getDistance(long pos, BlockPos target) {
+        return PositionUtils.getDistance(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos),
+                target.getX(), target.getY(), target.getZ());
     }
 
     /**
-     * Processes found paths according to config, displays them if waypoint graph editor is inactive.
+     * Processes found paths according to config.
      */
-    private static List<BlockPos> processResults(ClientWorld world, List<BlockPos> path) {
-        if (cfg.useAstarSmoothing) applySmoothing(world, path);
+    private static List<BlockPos> processResults(BlockSource source, List<BlockPos> path) {
+        long startTime = System.nanoTime();
+        if (cfg.useAstarSmoothing) applySmoothing(source, path);
         if (cfg.useAstarOptimizing) optimizePath(path);
+        Stats.recordTime(Stats.Metric.PROCESSING_TIME, startTime);
+        return path;
+    }
+
+    private static void displayPath(List<BlockPos> path) {
         if (!GraphEditor.active) setRenderPath(path);
         Output.chat("Found path with " + path.size() + " nodes.");
-        return path;
     }
 
     /**
-     * Applies smoothing to a path, making segments on flat surfaces more direct by removing excess nodes.
+     * Applies smoothing to a path, making segments more direct by removing excess nodes.
+     * Each kept node is linked to the furthest following node that is directly reachable from it.
      */
-    private static void applySmoothing(ClientWorld world, List<BlockPos> path) {
+    static void applySmoothing(BlockSource source, List<BlockPos> path) {
         if (path.size() < 3) return;
 
-        int start = 0;
-        int end = 2;
-
-        while (end != path.size()) {
-            BlockPos pos1 = path.get(start);
-            BlockPos pos2 = path.get(end);
-
-            if (isLinkValid(world, pos1, pos2)) path.remove(end - 1);
-            else {
-                start++;
-                end++;
+        int anchor = 0;
+        int kept = 1;
+        for (int i = 2; i < path.size(); i++) {
+            if (!isLinkValid(source, path.get(anchor), path.get(i))) {
+                path.set(kept, path.get(i - 1));
+                anchor = kept++;
             }
         }
+        path.set(kept++, path.get(path.size() - 1));
+        path.subList(kept, path.size()).clear();
     }
 
     /**
      * Used in path smoothing to check if smoothed path segments are traversable.
+     * Visits the columns crossed by the segment using a voxel traversal (Amanatides-Woo) in the horizontal plane.
+     * Each column needs a valid position at one of the heights the segment passes through there, at most a block
+     * away from the previous one, so sloped segments are valid where the ground follows them.
      */
-    public static boolean isLinkValid(ClientWorld world, Vec3i pos1, Vec3i pos2) {
-        if (pos1.getY() != pos2.getY()) return false;
-
-        float steps = PositionUtils.getDistance(pos1, pos2) * 5;
-        float xStep = (pos2.getX() - pos1.getX()) / steps;
-        float zStep = (pos2.getZ() - pos1.getZ()) / steps;
-
-        int targetX = pos2.getX();
-        int targetZ = pos2.getZ();
-
-        float pointerX = pos1.getX() + 0.5f;
-        float pointerZ = pos1.getZ() + 0.5f;
-        int pointerY = pos1.getY();
-
-        List<BlockPos> positions = new ArrayList<>();
-        int currentX = pos1.getX();
-        int currentZ = pos1.getZ();
-
-        for (int i = 0; i < steps; i++) {
-            pointerX += xStep;
-            pointerZ += zStep;
-            int pointerIntX = (int) (pointerX < 0 ? pointerX - 1 : pointerX);
-            int pointerIntZ = (int) (pointerZ < 0 ? pointerZ - 1 : pointerZ);
-
-            if (!(pointerIntX == currentX && pointerIntZ == currentZ)) {
-                if (pointerIntX == targetX && pointerIntZ == targetZ) break;
-                positions.add(new BlockPos(pointerIntX, pointerY, pointerIntZ));
-                currentX = pointerIntX;
-                currentZ = pointerIntZ;
+    public static boolean isLinkValid(BlockSource source, Vec3i pos1, Vec3i pos2) {
+        int x = pos1.getX();
+        int y = pos1.getY();
+        int z = pos1.getZ();
+        int dx = pos2.getX() - x;
+        int dy = pos2.getY() - y;
+        int dz = pos2.getZ() - z;
+        int stepX = Integer.signum(dx);
+        int stepZ = Integer.signum(dz);
+        boolean swimming = (source.getFlags(x, y - 1, z) & NavigationFlags.WATER) != 0;
+
+        //progress along the segment needed to cross one column on each axis, and to reach the next column border,
+        //in exact units of 1 / scale so that passing through a column corner is detected
+        long scale = 2L * Math.max(1, Math.abs(dx)) * Math.max(1, Math.abs(dz));
+        long deltaX = dx == 0 ? Long.MAX_VALUE : scale / Math.abs(dx);
+        long deltaZ = dz == 0 ? Long.MAX_VALUE : scale / Math.abs(dz);
+        long nextX = deltaX / 2;
+        long nextZ = deltaZ / 2;
+        int lastY = y;
+
+        for (int steps = Math.abs(dx) + Math.abs(dz); steps > 1; steps--) {
+            int lastX = x;
+            int lastZ = z;
+            long entry;
+            if (nextX == nextZ) {
+                //the segment passes exactly through a corner, touching both columns beside it
+                entry = nextX;
+                int low = (int) Math.floor(y + dy * (float) entry / scale);
+                int high = (int) Math.ceil(y + dy * (float) entry / scale);
+                if (getLinkHeight(source, x + stepX, z, low, high, lastX, lastY, lastZ, swimming) == Integer.MIN_VALUE
+                        || getLinkHeight(source, x, z + stepZ, low, high, lastX, lastY, lastZ, swimming) == Integer.MIN_VALUE) return false;
+
+                x += stepX;
+                z += stepZ;
+                nextX += deltaX;
+                nextZ += deltaZ;
+                if (--steps == 1) break;
             }
-        }
-        if (world.getBlockState(new BlockPos(pos1.getX(), pos1.getY() - 1, pos1.getZ())).getBlock().equals(Blocks.WATER)) {
-            for (BlockPos pos : positions) {
-                if (!PositionUtils.isValidSwimPosition(world, pos)) return false;
+            else if (nextX < nextZ) {
+                x += stepX;
+                entry = nextX;
+                nextX += deltaX;
+            }
+            else {
+                z += stepZ;
+                entry = nextZ;
+                nextZ += deltaZ;
             }
+            long exit = Math.min(nextX, nextZ);
+            int low = (int) Math.floor(y + dy * (float) Math.min(entry, exit) / scale);
+            int high = (int) Math.ceil(y + dy * (float) Math.max(entry, exit) / scale);
+
+            lastY = getLinkHeight(source, x, z, low, high, lastX, lastY, lastZ, swimming);
+            if (lastY == Integer.MIN_VALUE) return false;
         }
-        else {
-            for (BlockPos pos : positions) {
-                if (!PositionUtils.isValidWalkPosition(world, pos)) return false;
+        return swimming || Math.abs(pos2.getY() - lastY) <= 1;
+    }
+
+    /**
+     * Finds the height of a valid position in a column that is closest to the previous position,
+     * or returns {@link Integer#MIN_VALUE} if there is none. Walking up a block also needs room to jump.
+     */
+    private static int getLinkHeight(BlockSource source, int x, int z, int low, int high, int lastX, int lastY, int lastZ, boolean swimming) {
+        int best = Integer.MIN_VALUE;
+        for (int y = low; y <= high; y++) {
+            if (swimming) {
+                if (!PositionUtils.isValidSwimPosition(source, x, y, z)) continue;
             }
+            else {
+                if (Math.abs(y - lastY) > 1 || !PositionUtils.isValidWalkPosition(source, x, y, z)) continue;
+                if (y > lastY && !PositionUtils.isPassable(source.getFlags(lastX, lastY + 2, lastZ))) continue;
+            }
+            if (best == Integer.MIN_VALUE || Math.abs(y - lastY) < Math.abs(best - lastY)) best = y;
         }
-        return true;
+        return best;
     }
 
     /**
      * Optimizes a path by combining consecutive segments with the same vector.
      */
-    private static void optimizePath(List<BlockPos> path) {
+    static void optimizePath(List<BlockPos> path) {
         if (path.size() < 3) return;
 
         int pointer = 0;
@@ -0,0 +1,42 @@
+package net.pathfinder.main.graph.astar;
+
+/**
+ * Abstract graph data of a single 16x16x16 section, used by {@link HierarchicalBuilder}.
+ * Exits are moves leaving the section, one per connected stretch of border positions leading into the same neighbour.
+ * Nodes are all exit sources and entry targets inside the section, linked by distances of paths that stay inside it.
+ */
+class Cluster {
+
+    final long[] exitFrom;
+    final long[] exitTo;
+    final float[] exitCost;
+    /**
+     * Null until the cluster is linked, which requires exits of all neighbouring clusters.
+     */
+    long[] nodes;
+    /**
+     * Row-major matrix of distances between nodes, infinite for nodes that can't reach each other inside the section.
+     */
+    float[] distances;
+
+    Cluster(long[] exitFrom, long[] exitTo, float[] exitCost) {
+        this.exitFrom = exitFrom;
+        this.exitTo = exitTo;
+        this.exitCost = exitCost;
+    }
+
+    boolean isLinked() {
+        return nodes != null;
+    }
+
+    int indexOf(long pos) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == pos) return i;
+        }
+        return -1;
+    }
+
+    float getDistance(int from, int to) {
+        return distances[from * nodes.length + to];
+    }
+}
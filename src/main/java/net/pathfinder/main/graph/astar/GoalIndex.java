@@ -0,0 +1,84 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.PositionUtils;
+
+/**
+ * Goal positions of a multi-goal search, used for the heuristic distance to the nearest goal.
+ * Space is split into 8x8x8 cells, each storing the goals that can be nearest to any position inside it.
+ * Cells are filled lazily as the search reaches them, so a distance only checks a few goals.
+ */
+class GoalIndex {
+
+    private static final int CELL_SHIFT = 3;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final long[] goals;
+    private final LongOpenHashSet goalSet;
+    private final Long2ObjectOpenHashMap<long[]> cells = new Long2ObjectOpenHashMap<>();
+
+    GoalIndex(long[] goals) {
+        this.goals = goals;
+        this.goalSet = new LongOpenHashSet(goals);
+    }
+
+    boolean isGoal(long pos) {
+        return goalSet.contains(pos);
+    }
+
+    float getDistance(long pos) {
+        int x = BlockPos.unpackLongX(pos);
+        int y = BlockPos.unpackLongY(pos);
+        int z = BlockPos.unpackLongZ(pos);
+        long cell = BlockPos.asLong(x >> CELL_SHIFT, y >> CELL_SHIFT, z >> CELL_SHIFT);
+
+        long[] nearby = cells.get(cell);
+        if (nearby == null) {
+            nearby = getCandidates(x >> CELL_SHIFT << CELL_SHIFT, y >> CELL_SHIFT << CELL_SHIFT, z >> CELL_SHIFT << CELL_SHIFT);
+            cells.put(cell, nearby);
+        }
+
+        float best = Float.POSITIVE_INFINITY;
+        for (long goal : nearby) {
+            best = Math.min(best, PositionUtils.getDistance(x, y, z,
+                    BlockPos.unpackLongX(goal), BlockPos.unpackLongY(goal), BlockPos.unpackLongZ(goal)));
+        }
+        return best;
+    }
+
+    /**
+     * Finds goals that can be the nearest one for some position in a cell. A goal is skipped if even the closest
+     * position in the cell is further from it than the furthest position is from some other goal.
+     */
+    private long[] getCandidates(int minX, int minY, int minZ) {
+        int maxX = minX + CELL_SIZE - 1;
+        int maxY = minY + CELL_SIZE - 1;
+        int maxZ = minZ + CELL_SIZE - 1;
+
+        long bound = Long.MAX_VALUE;
+        for (long goal : goals) {
+            int x = BlockPos.unpackLongX(goal);
+            int y = BlockPos.unpackLongY(goal);
+            int z = BlockPos.unpackLongZ(goal);
+            long dx = Math.max(x - minX, maxX - x);
+            long dy = Math.max(y - minY, maxY - y);
+            long dz = Math.max(z - minZ, maxZ - z);
+            bound = Math.min(bound, dx * dx + dy * dy + dz * dz);
+        }
+
+        LongArrayList candidates = new LongArrayList();
+        for (long goal : goals) {
+            int x = BlockPos.unpackLongX(goal);
+            int y = BlockPos.unpackLongY(goal);
+            int z = BlockPos.unpackLongZ(goal);
+            long dx = Math.max(0, Math.max(minX - x, x - maxX));
+            long dy = Math.max(0, Math.max(minY - y, y - maxY));
+            long dz = Math.max(0, Math.max(minZ - z, z - maxZ));
+            if (dx * dx + dy * dy + dz * dz <= bound) candidates.add(goal);
+        }
+        return candidates.toLongArray();
+    }
+}
@@ -0,0 +1,465 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.pathfinder.main.graph.BlockSource;
+import net.pathfinder.main.graph.CandidateBuffer;
+import net.pathfinder.main.graph.CandidateSupplier;
+import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.WorldChanges;
+import net.pathfinder.main.graph.WorldSnapshot;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hierarchical A* (HPA*) for targets further away than the max path distance.
+ * The world is split into clusters matching 16x16x16 chunk sections, each one with its exits and distances between them
+ * cached in a {@link Cluster}. Searches run over the graph of cluster exits first, after which only the sections
+ * the found route passes through are searched in detail. Paths between two positions of a cluster never leave it,
+ * so found paths are valid but not always optimal.
+ */
+public class HierarchicalBuilder {
+
+    private static final int SIZE = 16;
+    /**
+     * Range of cluster searches from the center of a section, covering all of its positions.
+     */
+    private static final int CLUSTER_RANGE = 14;
+    /**
+     * Clusters are only cached if they were computed from loaded chunks with this margin around them,
+     * to make sure neighbouring blocks checked by movement rules weren't missing.
+     */
+    private static final int CACHE_MARGIN = 2 * SIZE;
+    /**
+     * Border stretches longer than this get exits at both ends as well as in the middle.
+     */
+    private static final int LONG_EXIT = 6;
+
+    private static final Map<Long, Cluster> cache = new ConcurrentHashMap<>();
+    private static final ThreadLocal<SearchArena> abstractArenas = ThreadLocal.withInitial(SearchArena::new);
+    private static final ThreadLocal<SearchArena> localArenas = ThreadLocal.withInitial(SearchArena::new);
+
+    private final BlockSource source;
+    private final WorldSnapshot snapshot;
+    private final PathJob job;
+    private final SearchArena local = localArenas.get();
+    /**
+     * Clusters used by the current search, taken from the cache or computed on first access. Keeps the search consistent
+     * while the client thread evicts cached clusters, and holds clusters computed from incomplete data.
+     */
+    private final Map<Long, Cluster> pinned = new HashMap<>();
+
+    private HierarchicalBuilder(BlockSource source, PathJob job) {
+        this.source = source;
+        this.snapshot = source instanceof WorldSnapshot worldSnapshot ? worldSnapshot : null;
+        this.job = job;
+    }
+
+    /**
+     * Finds a path using the cluster graph. Expansions of the abstract search and of the searches inside clusters
+     * all count towards the job budget.
+     */
+    public static PathResult findPath(BlockSource source, BlockPos start, BlockPos target, PathJob job) {
+        try {
+            return new HierarchicalBuilder(source, job).find(start, target);
+        }
+        catch (Stopped e) {
+            return job.stopped(null);
+        }
+    }
+
+    /**
+     * Removes cached data of changed sections and their neighbours, which link to their exits.
+     * Loaded and unloaded chunks remove all sections of their column and the neighbouring ones.
+     */
+    public static void onWorldChanged(LongSet sections, LongSet chunks) {
+        for (long section : sections) {
+            int x = BlockPos.unpackLongX(section);
+            int y = BlockPos.unpackLongY(section);
+            int z = BlockPos.unpackLongZ(section);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) cache.remove(BlockPos.asLong(x + dx, y + dy, z + dz));
+                }
+            }
+        }
+        if (chunks.isEmpty()) return;
+
+        cache.keySet().removeIf(key -> {
+            int x = BlockPos.unpackLongX(key);
+            int z = BlockPos.unpackLongZ(key);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (chunks.contains(ChunkPos.toLong(x + dx, z + dz))) return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    public static void clear() {
+        cache.clear();
+    }
+
+    private PathResult find(BlockPos start, BlockPos target) {
+        long startPos = start.asLong();
+        long targetPos = target.asLong();
+        long startKey = sectionKey(startPos);
+        long targetKey = sectionKey(targetPos);
+
+        Cluster startCluster = getLinkedCluster(startKey);
+        searchCluster(startKey, startPos, null, false);
+        float[] startCosts = getScores(startCluster.nodes);
+        float direct = Float.POSITIVE_INFINITY;
+        if (startKey == targetKey) {
+            int index = local.find(targetPos);
+            if (index != -1) direct = local.scores[index];
+        }
+
+        Cluster targetCluster = getLinkedCluster(targetKey);
+        searchCluster(targetKey, targetPos, null, true);
+        float[] targetCosts = getScores(targetCluster.nodes);
+
+        SearchArena arena = abstractArenas.get();
+        arena.reset();
+        IndexedHeap open = arena.open;
+
+        int first = arena.getOrCreate(startPos);
+        arena.scores[first] = 0f;
+        open.push(first, PositionUtils.getDistance(start, target));
+
+        while (!open.isEmpty()) {
+            if (job.shouldStop()) return job.stopped(null);
+            int current = open.poll();
+            long currentPos = arena.positions[current];
+
+            if (currentPos == targetPos) {
+                List<BlockPos> path = refine(arena.getPath(current));
+                return path == null ? PathResult.unreachable() : PathResult.found(path);
+            }
+
+            long key = sectionKey(currentPos);
+            Cluster cluster = getLinkedCluster(key);
+            int index = cluster.indexOf(currentPos);
+
+            if (current == first) {
+                for (int i = 0; i < startCluster.nodes.length; i++)
+                    relax(arena, current, startCluster.nodes[i], startCosts[i], target);
+                relax(arena, current, targetPos, direct, target);
+            }
+            else if (index != -1) {
+                for (int i = 0; i < cluster.nodes.length; i++) {
+                    if (i != index) relax(arena, current, cluster.nodes[i], cluster.getDistance(index, i), target);
+                }
+                //pinned clusters are the same instances for the whole search, so indices of the target cluster match its costs
+                if (cluster == targetCluster) relax(arena, current, targetPos, targetCosts[index], target);
+            }
+            for (int i = 0; i < cluster.exitFrom.length; i++) {
+                if (cluster.exitFrom[i] == currentPos) relax(arena, current, cluster.exitTo[i], cluster.exitCost[i], target);
+            }
+        }
+        return PathResult.unreachable();
+    }
+
+    private static void relax(SearchArena arena, int current, long pos, float cost, BlockPos target) {
+        if (cost == Float.POSITIVE_INFINITY) return;
+        int next = arena.getOrCreate(pos);
+
+        float newScore = arena.scores[current] + cost;
+        if (newScore < arena.scores[next]) {
+            arena.parents[next] = current;
+            arena.scores[next] = newScore;
+            arena.open.push(next, newScore + AstarBuilder.getDistance(pos, target));
+        }
+    }
+
+    /**
+     * Replaces each step of an abstract path inside a cluster with the actual path between its positions.
+     * Steps between clusters are single moves and are kept as they are.
+     */
+    private List<BlockPos> refine(List<BlockPos> route) {
+        List<BlockPos> path = new ArrayList<>();
+        path.add(route.get(0));
+
+        for (int i = 1; i < route.size(); i++) {
+            long from = route.get(i - 1).asLong();
+            BlockPos to = route.get(i);
+            long key = sectionKey(from);
+            if (key != sectionKey(to.asLong())) {
+                path.add(to);
+                continue;
+            }
+            int goal = searchCluster(key, from, to, false);
+            if (goal == -1) return null;
+
+            List<BlockPos> segment = local.getPath(goal);
+            path.addAll(segment.subList(1, segment.size()));
+        }
+        return path;
+    }
+
+    /**
+     * Searches the local arena from a position without leaving its section, backwards along predecessors if requested.
+     * Runs A* towards the goal if one is given and returns its index, or -1 if it can't be reached.
+     * Without a goal, all positions of the section reachable from the start are scored.
+     */
+    private int searchCluster(long key, long from, BlockPos goal, boolean backwards) {
+        CandidateSupplier supplier = createSupplier(key);
+        CandidateBuffer candidates = local.candidates;
+        IndexedHeap open = local.open;
+        long goalPos = goal == null ? 0L : goal.asLong();
+        local.reset();
+
+        int first = local.getOrCreate(from);
+        local.scores[first] = 0f;
+        open.push(first, 0f);
+
+        while (!open.isEmpty()) {
+            if (job.shouldStop()) throw new Stopped();
+            int current = open.poll();
+            long currentPos = local.positions[current];
+
+            if (goal != null && currentPos == goalPos) return current;
+
+            float currentScore = local.scores[current];
+            if (backwards) supplier.getPredecessors(currentPos, candidates);
+            else supplier.getCandidates(currentPos, candidates);
+
+            for (int i = 0; i < candidates.size(); i++) {
+                long pos = candidates.position(i);
+                if (sectionKey(pos) != key) continue;
+                int next = local.getOrCreate(pos);
+
+                float newScore = currentScore + candidates.cost(i);
+                if (newScore < local.scores[next]) {
+                    local.parents[next] = current;
+                    local.scores[next] = newScore;
+                    open.push(next, goal == null ? newScore : newScore + AstarBuilder.getDistance(pos, goal));
+                }
+            }
+        }
+        return -1;
+    }
+
+    private float[] getScores(long[] nodes) {
+        float[] scores = new float[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            int index = local.find(nodes[i]);
+            scores[i] = index == -1 ? Float.POSITIVE_INFINITY : local.scores[index];
+        }
+        return scores;
+    }
+
+    /**
+     * Creates a supplier limited to a section. Suppliers share the memo of the local arena, only one is used at a time.
+     */
+    private CandidateSupplier createSupplier(long key) {
+        BlockPos center = new BlockPos(BlockPos.unpackLongX(key) * SIZE + SIZE / 2,
+                BlockPos.unpackLongY(key) * SIZE + SIZE / 2, BlockPos.unpackLongZ(key) * SIZE + SIZE / 2);
+        return new CandidateSupplier(source, center, CLUSTER_RANGE, local.memo);
+    }
+
+    private Cluster getCluster(long key) {
+        Cluster cluster = pinned.get(key);
+        if (cluster != null) return cluster;
+
+        cluster = cache.get(key);
+        if (cluster == null) {
+            cluster = computeExits(key);
+            if (isCacheable(key)) cache.put(key, cluster);
+        }
+        pinned.put(key, cluster);
+        return cluster;
+    }
+
+    private Cluster getLinkedCluster(long key) {
+        Cluster cluster = getCluster(key);
+        if (!cluster.isLinked()) link(cluster, key);
+        return cluster;
+    }
+
+    /**
+     * Checks if a cluster computed from the snapshot can be cached, meaning its surroundings were captured
+     * and none of them changed since, as their eviction could have happened before the cluster is stored.
+     */
+    private boolean isCacheable(long key) {
+        if (snapshot == null) return false;
+        int minX = BlockPos.unpackLongX(key) * SIZE;
+        int minY = BlockPos.unpackLongY(key) * SIZE;
+        int minZ = BlockPos.unpackLongZ(key) * SIZE;
+        if (!snapshot.isCaptured(minX - CACHE_MARGIN, minY - CACHE_MARGIN, minZ - CACHE_MARGIN,
+                minX + SIZE - 1 + CACHE_MARGIN, minY + SIZE - 1 + CACHE_MARGIN, minZ + SIZE - 1 + CACHE_MARGIN)) return false;
+
+        int sections = CACHE_MARGIN / SIZE;
+        for (int dx = -sections; dx <= sections; dx++) {
+            for (int dy = -sections; dy <= sections; dy++) {
+                for (int dz = -sections; dz <= sections; dz++) {
+                    long section = BlockPos.asLong(BlockPos.unpackLongX(key) + dx, BlockPos.unpackLongY(key) + dy, BlockPos.unpackLongZ(key) + dz);
+                    if (WorldChanges.getRevision(section) > snapshot.getRevision()) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds all moves leaving a section from its border and groups them by the neighbouring section they lead into.
+     * Each group is split into stretches of adjacent border positions, and only the cheapest moves from
+     * the representative positions of every stretch are kept as exits.
+     */
+    private Cluster computeExits(long key) {
+        CandidateSupplier supplier = createSupplier(key);
+        CandidateBuffer candidates = local.candidates;
+        int minX = BlockPos.unpackLongX(key) * SIZE;
+        int minY = BlockPos.unpackLongY(key) * SIZE;
+        int minZ = BlockPos.unpackLongZ(key) * SIZE;
+        Map<Long, LongArrayList> sources = new LinkedHashMap<>();
+
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    if (!isBorder(x) && !isBorder(y) && !isBorder(z)) continue;
+                    if (!isNode(minX + x, minY + y, minZ + z)) continue;
+                    if (job.shouldStop()) throw new Stopped();
+
+                    long pos = BlockPos.asLong(minX + x, minY + y, minZ + z);
+                    supplier.getCandidates(pos, candidates);
+                    for (int i = 0; i < candidates.size(); i++) {
+                        long neighbour = sectionKey(candidates.position(i));
+                        if (neighbour == key) continue;
+                        LongArrayList list = sources.computeIfAbsent(neighbour, k -> new LongArrayList());
+                        if (list.isEmpty() || list.getLong(list.size() - 1) != pos) list.add(pos);
+                    }
+                }
+            }
+        }
+
+        LongArrayList exitFrom = new LongArrayList();
+        LongArrayList exitTo = new LongArrayList();
+        FloatArrayList exitCost = new FloatArrayList();
+        for (Map.Entry<Long, LongArrayList> entry : sources.entrySet()) {
+            long neighbour = entry.getKey();
+            LongOpenHashSet remaining = new LongOpenHashSet(entry.getValue());
+
+            for (long pos : entry.getValue()) {
+                if (!remaining.contains(pos)) continue;
+                LongArrayList stretch = collectStretch(pos, remaining);
+
+                LongOpenHashSet representatives = new LongOpenHashSet();
+                representatives.add(stretch.getLong(stretch.size() / 2));
+                if (stretch.size() > LONG_EXIT) {
+                    representatives.add(stretch.getLong(0));
+                    representatives.add(stretch.getLong(stretch.size() - 1));
+                }
+                for (long from : representatives) {
+                    supplier.getCandidates(from, candidates);
+                    int best = -1;
+                    for (int i = 0; i < candidates.size(); i++) {
+                        if (sectionKey(candidates.position(i)) != neighbour) continue;
+                        if (best == -1 || candidates.cost(i) < candidates.cost(best)) best = i;
+                    }
+                    exitFrom.add(from);
+                    exitTo.add(candidates.position(best));
+                    exitCost.add(candidates.cost(best));
+                }
+            }
+        }
+
+        return new Cluster(exitFrom.toLongArray(), exitTo.toLongArray(), exitCost.toFloatArray());
+    }
+
+    /**
+     * Removes all positions connected to the given one from the set, ordered by distance from it.
+     */
+    private static LongArrayList collectStretch(long pos, LongOpenHashSet remaining) {
+        LongArrayList stretch = new LongArrayList();
+        stretch.add(pos);
+        remaining.remove(pos);
+
+        for (int i = 0; i < stretch.size(); i++) {
+            long current = stretch.getLong(i);
+            int x = BlockPos.unpackLongX(current);
+            int y = BlockPos.unpackLongY(current);
+            int z = BlockPos.unpackLongZ(current);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        long next = BlockPos.asLong(x + dx, y + dy, z + dz);
+                        if (remaining.remove(next)) stretch.add(next);
+                    }
+                }
+            }
+        }
+        return stretch;
+    }
+
+    /**
+     * Computes distances between all nodes of a cluster, which are its own exits and exits of neighbours leading into it.
+     */
+    private void link(Cluster cluster, long key) {
+        LongOpenHashSet seen = new LongOpenHashSet();
+        LongArrayList nodes = new LongArrayList();
+        for (long pos : cluster.exitFrom) {
+            if (seen.add(pos)) nodes.add(pos);
+        }
+
+        int sectionX = BlockPos.unpackLongX(key);
+        int sectionY = BlockPos.unpackLongY(key);
+        int sectionZ = BlockPos.unpackLongZ(key);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx == 0 && dy == 0 && dz == 0) continue;
+                    Cluster neighbour = getCluster(BlockPos.asLong(sectionX + dx, sectionY + dy, sectionZ + dz));
+                    for (long pos : neighbour.exitTo) {
+                        if (sectionKey(pos) == key && seen.add(pos)) nodes.add(pos);
+                    }
+                }
+            }
+        }
+
+        long[] positions = nodes.toLongArray();
+        float[] distances = new float[positions.length * positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            searchCluster(key, positions[i], null, false);
+            float[] scores = getScores(positions);
+            System.arraycopy(scores, 0, distances, i * positions.length, positions.length);
+        }
+        cluster.distances = distances;
+        cluster.nodes = positions;
+    }
+
+    /**
+     * Checks if a position can be moved to, either standing on a block or climbing.
+     */
+    private boolean isNode(int x, int y, int z) {
+        int flags = source.getFlags(x, y, z);
+        if (!PositionUtils.isPassable(flags) || !PositionUtils.isSafe(flags)) return false;
+        return PositionUtils.isClimbable(flags)
+                || PositionUtils.isStandable(source.getFlags(x, y - 1, z)) && PositionUtils.isPassable(source.getFlags(x, y + 1, z));
+    }
+
+    private static boolean isBorder(int coordinate) {
+        return coordinate == 0 || coordinate == SIZE - 1;
+    }
+
+    private static long sectionKey(long pos) {
+        return BlockPos.asLong(BlockPos.unpackLongX(pos) >> 4, BlockPos.unpackLongY(pos) >> 4, BlockPos.unpackLongZ(pos) >> 4);
+    }
+
+    /**
+     * Thrown when the job stops the search, from however deep in cluster computations it happens.
+     * Clusters being computed at that point are dropped, as they're only cached once complete.
+     */
+    private static class Stopped extends RuntimeException {
+
+        private Stopped() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.BlockSource;
+import net.pathfinder.main.graph.CandidateBuffer;
+import net.pathfinder.main.graph.CandidateSupplier;
+import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.WorldChanges;
+import net.pathfinder.main.graph.WorldSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+
+/**
+ * D* Lite planner for debug paths. The search runs backwards from the target and is kept between calls,
+ * so moving the start or changing blocks only repairs the affected part of it instead of repeating the whole search.
+ * Changed blocks are found by comparing the previous block source with the new one around explored positions,
+ * limited to sections changed in between for snapshots.
+ * Moving the target, or changing movement costs or range, starts a new search. The search range is centered
+ * on the target rather than the start. Only used from the executor thread.
+ */
+class IncrementalPlanner {
+
+    static final IncrementalPlanner INSTANCE = new IncrementalPlanner();
+    /**
+     * Nodes with keys equal to the start's can still lie on the cheapest path, and keys computed after moving the start
+     * can be off by float rounding, so the search continues until all keys are clearly larger.
+     */
+    private static final float KEY_TOLERANCE = 1e-3f;
+
+    private final SearchArena arena = new SearchArena();
+    private final CandidateBuffer successors = new CandidateBuffer();
+    /**
+     * One-step lookahead scores of nodes, while the arena scores hold their last expanded scores.
+     */
+    private float[] lookahead = new float[1024];
+
+    private BlockSource source;
+    private CandidateSupplier supplier;
+    private float[] costs;
+    private int range;
+    private BlockPos start;
+    private BlockPos target;
+    private int root;
+    private float keyModifier;
+
+    /**
+     * Finds a path from the start to the target, reusing the previous search if it had the same target.
+     * A search stopped by the job is left in a valid state and continues with the next call.
+     */
+    PathResult findPath(BlockSource source, BlockPos start, BlockPos target, PathJob job) {
+        BlockSource previous = this.source;
+        boolean reuse = previous != null && target.equals(this.target) && costs == cfg.moveCosts && range == cfg.maxPathDistance;
+        this.source = source;
+        this.supplier = new CandidateSupplier(source, target, arena.memo);
+
+        if (reuse) {
+            keyModifier += PositionUtils.getDistance(this.start, start);
+            this.start = start;
+            applyChanges(previous);
+        }
+        else initialize(start, target);
+
+        if (!computeShortestPath(job)) return job.stopped(null);
+        return extractPath();
+    }
+
+    long getHeapOperations() {
+        return arena.open.getOperations();
+    }
+
+    void clear() {
+        arena.reset();
+        source = null;
+        supplier = null;
+        start = null;
+        target = null;
+    }
+
+    private void initialize(BlockPos start, BlockPos target) {
+        arena.reset();
+        this.start = start;
+        this.target = target;
+        costs = cfg.moveCosts;
+        range = cfg.maxPathDistance;
+        keyModifier = 0f;
+
+        root = node(target.asLong());
+        lookahead[root] = 0f;
+        arena.open.push(root, key(root));
+    }
+
+    /**
+     * Updates nodes with outgoing moves that could have been affected by blocks changed since the previous search.
+     * Moves from a position only depend on blocks up to one block away horizontally and two vertically.
+     * Between snapshots only sections changed in between according to {@link WorldChanges} are compared,
+     * other sources are compared over the whole explored area.
+     */
+    private void applyChanges(BlockSource previous) {
+        int size = arena.size();
+        if (size == 0) return;
+
+        LongOpenHashSet affected = new LongOpenHashSet();
+        if (previous instanceof WorldSnapshot snapshot && source instanceof WorldSnapshot) {
+            //sections of blocks read by rules around explored positions, in both directions
+            LongOpenHashSet sections = new LongOpenHashSet();
+            for (int i = 0; i < size; i++) {
+                long pos = arena.positions[i];
+                int x = BlockPos.unpackLongX(pos);
+                int y = BlockPos.unpackLongY(pos);
+                int z = BlockPos.unpackLongZ(pos);
+                for (int sx = (x - 2) >> 4; sx <= (x + 2) >> 4; sx++) {
+                    for (int sy = (y - 3) >> 4; sy <= (y + 3) >> 4; sy++) {
+                        for (int sz = (z - 2) >> 4; sz <= (z + 2) >> 4; sz++) sections.add(BlockPos.asLong(sx, sy, sz));
+                    }
+                }
+            }
+            for (long section : sections) {
+                if (WorldChanges.getRevision(section) <= snapshot.getRevision()) continue;
+                int minX = BlockPos.unpackLongX(section) << 4;
+                int minY = BlockPos.unpackLongY(section) << 4;
+                int minZ = BlockPos.unpackLongZ(section) << 4;
+                compare(previous, minX, minY, minZ, minX + 15, minY + 15, minZ + 15, affected);
+            }
+        }
+        else {
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                long pos = arena.positions[i];
+                int x = BlockPos.unpackLongX(pos);
+                int y = BlockPos.unpackLongY(pos);
+                int z = BlockPos.unpackLongZ(pos);
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                maxZ = Math.max(maxZ, z);
+            }
+            compare(previous, minX - 2, minY - 3, minZ - 2, maxX + 2, maxY + 3, maxZ + 2, affected);
+        }
+
+        for (long pos : affected) {
+            int index = arena.find(pos);
+            if (index != -1) updateNode(index);
+            else {
+                float score = getBestSuccessor(pos);
+                if (score == Float.POSITIVE_INFINITY) continue;
+                index = node(pos);
+                lookahead[index] = score;
+                updateQueue(index);
+            }
+        }
+    }
+
+    /**
+     * Compares blocks of a box between the previous and current source, adding positions with moves depending on
+     * the changed ones to the set.
+     */
+    private void compare(BlockSource previous, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, LongOpenHashSet affected) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    if (previous.getFlags(x, y, z) == source.getFlags(x, y, z)) continue;
+
+                    for (int dx = -1; dx <= 1; dx++) {
+                        for (int dy = -2; dy <= 2; dy++) {
+                            for (int dz = -1; dz <= 1; dz++) affected.add(BlockPos.asLong(x + dx, y + dy, z + dz));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands nodes until the start is consistent and no queued node can lower its score.
+     * Returns false if it was stopped by the job.
+     */
+    private boolean computeShortestPath(PathJob job) {
+        IndexedHeap open = arena.open;
+        CandidateBuffer candidates = arena.candidates;
+        int first = arena.find(start.asLong());
+        if (first == -1) {
+            first = node(start.asLong());
+            updateNode(first);
+        }
+
+        while (!open.isEmpty() && (open.peekKey() <= key(first) + KEY_TOLERANCE || lookahead[first] != arena.scores[first])) {
+            if (job.shouldStop()) return false;
+            float oldKey = open.peekKey();
+            int current = open.poll();
+            float newKey = key(current);
+            if (oldKey < newKey) {
+                open.push(current, newKey);
+                continue;
+            }
+
+            long currentPos = arena.positions[current];
+            supplier.getPredecessors(currentPos, candidates);
+
+            if (arena.scores[current] > lookahead[current]) {
+                float score = lookahead[current];
+                arena.scores[current] = score;
+                for (int i = 0; i < candidates.size(); i++) {
+                    int previous = node(candidates.position(i));
+                    if (previous == root) continue;
+                    lookahead[previous] = Math.min(lookahead[previous], candidates.cost(i) + score);
+                    updateQueue(previous);
+                }
+            }
+            else {
+                arena.scores[current] = Float.POSITIVE_INFINITY;
+                updateNode(current);
+                for (int i = 0; i < candidates.size(); i++) {
+                    int previous = arena.find(candidates.position(i));
+                    if (previous != -1) updateNode(previous);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Follows the cheapest moves from the start down to the target. Nodes left inconsistent in the queue can't be part
+     * of the cheapest path, but could have outdated scores, so they are skipped.
+     */
+    private PathResult extractPath() {
+        int first = arena.find(start.asLong());
+        if (first == -1 || lookahead[first] == Float.POSITIVE_INFINITY) return PathResult.unreachable();
+
+        List<BlockPos> path = new ArrayList<>();
+        long pos = start.asLong();
+        long targetPos = target.asLong();
+        path.add(start);
+
+        while (pos != targetPos) {
+            if (path.size() > arena.size()) return PathResult.unreachable();
+            supplier.getCandidates(pos, successors);
+
+            float best = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < successors.size(); i++) {
+                int next = arena.find(successors.position(i));
+                if (next == -1 || arena.scores[next] != lookahead[next]) continue;
+                float score = successors.cost(i) + arena.scores[next];
+                if (score < best) {
+                    best = score;
+                    pos = successors.position(i);
+                }
+            }
+            if (best == Float.POSITIVE_INFINITY) return PathResult.unreachable();
+            path.add(BlockPos.fromLong(pos));
+        }
+        return PathResult.found(path);
+    }
+
+    private void updateNode(int node) {
+        if (node != root) lookahead[node] = getBestSuccessor(arena.positions[node]);
+        updateQueue(node);
+    }
+
+    private void updateQueue(int node) {
+        if (arena.scores[node] != lookahead[node]) arena.open.push(node, key(node));
+        else arena.open.remove(node);
+    }
+
+    private float getBestSuccessor(long pos) {
+        supplier.getCandidates(pos, successors);
+        float best = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < successors.size(); i++) {
+            int next = arena.find(successors.position(i));
+            if (next != -1) best = Math.min(best, successors.cost(i) + arena.scores[next]);
+        }
+        return best;
+    }
+
+    private float key(int node) {
+        return Math.min(arena.scores[node], lookahead[node]) + AstarBuilder.getDistance(arena.positions[node], start) + keyModifier;
+    }
+
+    private int node(long pos) {
+        int size = arena.size();
+        int index = arena.getOrCreate(pos);
+        if (index == size) {
+            if (index == lookahead.length) {
+                lookahead = Arrays.copyOf(lookahead, index * 2);
+            }
+            lookahead[index] = Float.POSITIVE_INFINITY;
+        }
+        return index;
+    }
+}
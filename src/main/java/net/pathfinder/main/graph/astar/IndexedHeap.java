@@ -0,0 +1,173 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.ints.Int2FloatFunction;
+
+import java.util.Arrays;
+
+/**
+ * A 4-ary min-heap of int node indices ordered by float keys. Keeps a node to slot index, which allows updating
+ * the key of an already queued node instead of inserting a duplicate entry.
+ * Storage is kept after clearing, so a reused heap doesn't allocate until it outgrows its previous size.
+ */
+public class IndexedHeap {
+
+    private int[] nodes = new int[1024];
+    private float[] keys = new float[1024];
+    private int[] slots = new int[0];
+    private int size = 0;
+    private long operations = 0;
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the amount of pushes, polls and removals made so far, kept across clearing.
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    public boolean contains(int node) {
+        return node < slots.length && slots[node] >= 0;
+    }
+
+    /**
+     * Returns the smallest key in the heap. Only valid if the heap isn't empty.
+     */
+    public float peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * Inserts a node, or moves it to a new position if it's already queued.
+     */
+    public void push(int node, float key) {
+        operations++;
+        if (node >= slots.length) growSlots(node);
+
+        int slot = slots[node];
+        if (slot < 0) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            slot = size++;
+            nodes[slot] = node;
+            keys[slot] = key;
+            siftUp(slot);
+        }
+        else if (key < keys[slot]) {
+            keys[slot] = key;
+            siftUp(slot);
+        }
+        else {
+            keys[slot] = key;
+            siftDown(slot);
+        }
+    }
+
+    /**
+     * Removes and returns the node with the smallest key. Only valid if the heap isn't empty.
+     */
+    public int poll() {
+        operations++;
+        int node = nodes[0];
+        slots[node] = -1;
+        size--;
+        if (size > 0) {
+            nodes[0] = nodes[size];
+            keys[0] = keys[size];
+            siftDown(0);
+        }
+        return node;
+    }
+
+    /**
+     * Removes a node from the heap, if it's queued.
+     */
+    public void remove(int node) {
+        if (!contains(node)) return;
+        operations++;
+        int slot = slots[node];
+        slots[node] = -1;
+        size--;
+        if (slot == size) return;
+
+        int moved = nodes[size];
+        nodes[slot] = moved;
+        keys[slot] = keys[size];
+        siftUp(slot);
+        siftDown(slots[moved]);
+    }
+
+    /**
+     * Recomputes keys of all queued nodes and restores the heap order.
+     */
+    public void rekey(Int2FloatFunction key) {
+        for (int i = 0; i < size; i++) keys[i] = key.get(nodes[i]);
+        for (int i = (size - 2) >> 2; i >= 0; i--) siftDown(i);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) slots[nodes[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int slot) {
+        int node = nodes[slot];
+        float key = keys[slot];
+
+        while (slot > 0) {
+            int parent = (slot - 1) >> 2;
+            if (keys[parent] <= key) break;
+
+            nodes[slot] = nodes[parent];
+            keys[slot] = keys[parent];
+            slots[nodes[slot]] = slot;
+            slot = parent;
+        }
+        nodes[slot] = node;
+        keys[slot] = key;
+        slots[node] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int node = nodes[slot];
+        float key = keys[slot];
+
+        while (true) {
+            int first = (slot << 2) + 1;
+            if (first >= size) break;
+
+            int best = first;
+            float bestKey = keys[first];
+            int last = Math.min(first + 4, size);
+            for (int child = first + 1; child < last; child++) {
+                if (keys[child] < bestKey) {
+                    best = child;
+                    bestKey = keys[child];
+                }
+            }
+            if (bestKey >= key) break;
+
+            nodes[slot] = nodes[best];
+            keys[slot] = bestKey;
+            slots[nodes[slot]] = slot;
+            slot = best;
+        }
+        nodes[slot] = node;
+        keys[slot] = key;
+        slots[node] = slot;
+    }
+
+    private void growSlots(int node) {
+        int oldLength = slots.length;
+        slots = Arrays.copyOf(slots, Math.max(node + 1, Math.max(1024, oldLength * 2)));
+        Arrays.fill(slots, oldLength, slots.length, -1);
+    }
+}
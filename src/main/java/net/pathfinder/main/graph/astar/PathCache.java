@@ -0,0 +1,117 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.pathfinder.main.graph.WorldChanges;
+
+import java.util.*;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+
+/**
+ * Bounded LRU cache of regular A* results, keyed by start, target and a hash of the settings affecting searches.
+ * Every entry keeps the chunk sections its search read blocks from, and is evicted as soon as one of them changes
+ * according to {@link WorldChanges}. Results of searches started before a change in their sections aren't stored.
+ * Paths aren't reused for the reversed direction, since moves like drops can't be reversed.
+ */
+public class PathCache {
+
+    private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Keys of entries depending on each section.
+     */
+    private static final Long2ObjectOpenHashMap<Set<Key>> dependents = new Long2ObjectOpenHashMap<>();
+
+    private record Key(long start, long target, int settings) {
+    }
+
+    private record Entry(PathResult result, long[] sections) {
+    }
+
+    /**
+     * Returns a copy of the cached result, or null if there is none.
+     */
+    static synchronized PathResult get(BlockPos start, BlockPos target, int settings) {
+        Entry entry = entries.get(new Key(start.asLong(), target.asLong(), settings));
+        if (entry == null) return null;
+        return new PathResult(entry.result.status(), new ArrayList<>(entry.result.path()));
+    }
+
+    /**
+     * Stores a copy of a result, unless some of the sections it depends on changed after the given revision.
+     */
+    static synchronized void put(BlockPos start, BlockPos target, int settings, PathResult result, LongSet sections, long since) {
+        if (cfg.pathCacheSize <= 0) return;
+        for (long section : sections) {
+            if (WorldChanges.getRevision(section) > since) return;
+        }
+
+        Key key = new Key(start.asLong(), target.asLong(), settings);
+        remove(key);
+        entries.put(key, new Entry(new PathResult(result.status(), List.copyOf(result.path())), sections.toLongArray()));
+        for (long section : sections) dependents.computeIfAbsent(section, s -> new HashSet<>()).add(key);
+
+        //entries are ordered by access, the first one being the least recently used
+        while (entries.size() > cfg.pathCacheSize) remove(entries.keySet().iterator().next());
+    }
+
+    /**
+     * Evicts entries depending on changed sections, or on any section of loaded and unloaded chunks.
+     */
+    public static synchronized void onWorldChanged(LongSet sections, LongSet chunks) {
+        List<Key> keys = new ArrayList<>();
+        for (Long2ObjectOpenHashMap.Entry<Set<Key>> entry : dependents.long2ObjectEntrySet()) {
+            long section = entry.getLongKey();
+            if (sections.contains(section) || chunks.contains(ChunkPos.toLong(BlockPos.unpackLongX(section), BlockPos.unpackLongZ(section))))
+                keys.addAll(entry.getValue());
+        }
+        keys.forEach(PathCache::remove);
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+        dependents.clear();
+    }
+
+    /**
+     * Collects sections of all blocks read while expanding the arena's nodes, one block around them horizontally
+     * and the given number of blocks vertically. Forward expansions read two blocks up and down,
+     * backward ones read three.
+     */
+    static void addSections(SearchArena arena, int margin, LongSet sections) {
+        for (int i = 0; i < arena.size(); i++) {
+            long pos = arena.positions[i];
+            int x = BlockPos.unpackLongX(pos);
+            int y = BlockPos.unpackLongY(pos);
+            int z = BlockPos.unpackLongZ(pos);
+            for (int sx = (x - 1) >> 4; sx <= (x + 1) >> 4; sx++) {
+                for (int sy = (y - margin) >> 4; sy <= (y + margin) >> 4; sy++) {
+                    for (int sz = (z - 1) >> 4; sz <= (z + 1) >> 4; sz++) sections.add(BlockPos.asLong(sx, sy, sz));
+                }
+            }
+        }
+    }
+
+    private static void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) removeDependent(key, entry);
+    }
+
+    private static void removeDependent(Key key, Entry entry) {
+        for (long section : entry.sections) {
+            Set<Key> keys = dependents.get(section);
+            if (keys == null) continue;
+            keys.remove(key);
+            if (keys.isEmpty()) dependents.remove(section);
+        }
+    }
+
+    /**
+     * Hash of settings that change search results, part of cache keys.
+     */
+    static int getSettingsHash() {
+        return Objects.hash(Arrays.hashCode(cfg.moveCosts), cfg.maxPathDistance, cfg.searchMode);
+    }
+}
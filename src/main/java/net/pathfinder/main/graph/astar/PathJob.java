@@ -0,0 +1,101 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.PathfinderMod;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A single path search running on the executor, with its result provided by a {@link CompletableFuture}.
+ * Jobs can be cancelled and are limited in expanded nodes and time, which searches check through {@link #shouldStop()}.
+ * A job cancelled before the executor gets to it is skipped entirely.
+ */
+public class PathJob {
+
+    private final CompletableFuture<PathResult> future = new CompletableFuture<>();
+    private final int maxNodes;
+    private final long maxTime;
+    private final boolean allowPartial;
+    private volatile boolean cancelled = false;
+    private long deadline;
+    private int expansions = 0;
+
+    /**
+     * @param maxNodes max amount of node expansions
+     * @param maxTime max search time in milliseconds, not counting the time spent waiting for the executor
+     * @param allowPartial whether a search running out of budget should return the path to the closest reached position
+     */
+    public PathJob(int maxNodes, int maxTime, boolean allowPartial) {
+        this.maxNodes = maxNodes;
+        this.maxTime = maxTime * 1_000_000L;
+        this.allowPartial = allowPartial;
+    }
+
+    /**
+     * Queues the search on the executor, completing the future with its result.
+     */
+    public PathJob submit(Function<PathJob, PathResult> search) {
+        PathfinderMod.executor.submit(() -> run(search));
+        return this;
+    }
+
+    /**
+     * Runs the search on the current thread, completing the future with its result.
+     * Used directly when searching outside the game, where there is no executor.
+     */
+    public PathResult run(Function<PathJob, PathResult> search) {
+        if (cancelled) return PathResult.cancelled();
+        deadline = System.nanoTime() + maxTime;
+        try {
+            PathResult result = search.apply(this);
+            future.complete(result);
+            return result;
+        }
+        catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<PathResult> future() {
+        return future;
+    }
+
+    /**
+     * Stops the search at its next check, the future is completed right away.
+     */
+    public void cancel() {
+        cancelled = true;
+        future.complete(PathResult.cancelled());
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Counts an expanded node and checks if the search has to stop, either because the job was cancelled
+     * or because it ran out of budget. Time is only checked every 256 expansions.
+     */
+    boolean shouldStop() {
+        expansions++;
+        if (cancelled || expansions > maxNodes) return true;
+        return (expansions & 255) == 0 && System.nanoTime() > deadline;
+    }
+
+    /**
+     * Builds the result of a search stopped by {@link #shouldStop()}, including the partial path if allowed and available.
+     */
+    PathResult stopped(Supplier<List<BlockPos>> partial) {
+        if (cancelled) return PathResult.cancelled();
+        if (allowPartial && partial != null) return new PathResult(PathResult.Status.PARTIAL, partial.get());
+        return new PathResult(PathResult.Status.BUDGET_EXCEEDED, List.of());
+    }
+}
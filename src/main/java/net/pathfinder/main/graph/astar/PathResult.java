@@ -0,0 +1,38 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.List;
+
+/**
+ * Result of a {@link PathJob}. The path is empty unless the status is {@link Status#FOUND} or {@link Status#PARTIAL}.
+ */
+public record PathResult(Status status, List<BlockPos> path) {
+
+    public enum Status {
+        FOUND,
+        /**
+         * The search ran out of budget, the path leads to the position closest to the target that was reached.
+         */
+        PARTIAL,
+        UNREACHABLE,
+        CANCELLED,
+        BUDGET_EXCEEDED
+    }
+
+    public static PathResult found(List<BlockPos> path) {
+        return new PathResult(Status.FOUND, path);
+    }
+
+    public static PathResult unreachable() {
+        return new PathResult(Status.UNREACHABLE, List.of());
+    }
+
+    public static PathResult cancelled() {
+        return new PathResult(Status.CANCELLED, List.of());
+    }
+
+    public boolean hasPath() {
+        return status == Status.FOUND || status == Status.PARTIAL;
+    }
+}
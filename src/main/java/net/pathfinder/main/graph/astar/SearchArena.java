@@ -0,0 +1,109 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.CandidateBuffer;
+import net.pathfinder.main.graph.WalkabilityMemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Node storage used in A*. Nodes are keyed by packed {@link BlockPos} longs and addressed by an int index,
+ * with their data kept in parallel primitive arrays instead of separate objects.
+ * An arena is meant to be reset and reused between searches, so it only allocates when growing past its previous size.
+ */
+public class SearchArena {
+
+    private final Long2IntOpenHashMap indices = new Long2IntOpenHashMap();
+    final IndexedHeap open = new IndexedHeap();
+    final CandidateBuffer candidates = new CandidateBuffer();
+    final WalkabilityMemo memo = new WalkabilityMemo();
+    /**
+     * Nodes expanded during the current iteration of an anytime search.
+     */
+    final BitSet closed = new BitSet();
+    /**
+     * Closed nodes whose score was lowered during the current iteration of an anytime search.
+     */
+    final BitSet inconsistent = new BitSet();
+
+    long[] positions = new long[1024];
+    int[] parents = new int[1024];
+    float[] scores = new float[1024];
+    private int size = 0;
+
+    public SearchArena() {
+        indices.defaultReturnValue(-1);
+    }
+
+    public void reset() {
+        indices.clear();
+        open.clear();
+        closed.clear();
+        inconsistent.clear();
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of a node at the given position, or -1 if it wasn't reached yet.
+     */
+    public int find(long pos) {
+        return indices.get(pos);
+    }
+
+    /**
+     * Returns the index of a node at the given position, creating a new one with an infinite score if needed.
+     */
+    public int getOrCreate(long pos) {
+        int index = indices.get(pos);
+        if (index != -1) return index;
+
+        if (size == positions.length) grow();
+        index = size++;
+        positions[index] = pos;
+        parents[index] = -1;
+        scores[index] = Float.POSITIVE_INFINITY;
+        indices.put(pos, index);
+        return index;
+    }
+
+    /**
+     * Builds the path leading to a node by following its parents back to the start.
+     */
+    public List<BlockPos> getPath(int index) {
+        List<BlockPos> path = new ArrayList<>();
+        while (index != -1) {
+            path.add(BlockPos.fromLong(positions[index]));
+            index = parents[index];
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Builds the path leading from a node by following its parents, used for backward searches which start at the target.
+     */
+    public List<BlockPos> getReversePath(int index) {
+        List<BlockPos> path = new ArrayList<>();
+        while (index != -1) {
+            path.add(BlockPos.fromLong(positions[index]));
+            index = parents[index];
+        }
+        return path;
+    }
+
+    private void grow() {
+        int length = positions.length * 2;
+        positions = Arrays.copyOf(positions, length);
+        parents = Arrays.copyOf(parents, length);
+        scores = Arrays.copyOf(scores, length);
+    }
+}
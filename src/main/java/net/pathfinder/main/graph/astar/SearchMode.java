@@ -0,0 +1,16 @@
+package net.pathfinder.main.graph.astar;
+
+/**
+ * Variants of the search used by {@link AstarBuilder}, selected in config.
+ */
+public enum SearchMode {
+    STANDARD("Standard"),
+    BIDIRECTIONAL("Bidirectional"),
+    ANYTIME("Anytime");
+
+    SearchMode(String name) {
+        this.name = name;
+    }
+
+    public final String name;
+}
@@ -1,6 +1,8 @@
 package net.pathfinder.main.graph.base;
 
 import com.mojang.brigadier.context.CommandContext;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.util.Pair;
@@ -20,26 +22,30 @@ public class BaseBuilder {
     public static final BaseBuilder INSTANCE = new BaseBuilder();
 
     final Set<BaseLink> links = new HashSet<>();
-    final Stack<BlockPos> open = new Stack<>();
-    final Map<BlockPos, Boolean> closed = new HashMap<>();
+    final LongArrayList open = new LongArrayList();
+    final LongOpenHashSet closed = new LongOpenHashSet();
 
     @SuppressWarnings("SameReturnValue")
     public int compute(CommandContext<FabricClientCommandSource> context) {
         ClientPlayerEntity player = context.getSource().getPlayer();
-        CandidateSupplier supplier = new CandidateSupplier(player.clientWorld);
+        CandidateBuffer candidates = new CandidateBuffer();
         BlockPos start = player.getBlockPos();
+        CandidateSupplier supplier = new CandidateSupplier(new LiveWorldSource(player.clientWorld), start);
         DebugManager.start = start;
         DebugManager.start3d = Vec3d.of(start);
 
-        open.add(start);
+        open.add(start.asLong());
 
         while (!open.isEmpty()) {
-            BlockPos current = open.pop();
-            closed.put(current, true);
-            List<BlockPos> newNodes = supplier.getCandidates(current)
-                    .stream().map(CandidateNode::pos).filter(pos -> !closed.containsKey(pos)).toList();
-            open.addAll(newNodes);
-            newNodes.forEach(pos -> links.add(new BaseLink(current, pos)));
+            long current = open.popLong();
+            closed.add(current);
+            supplier.getCandidates(current, candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                long pos = candidates.position(i);
+                if (closed.contains(pos)) continue;
+                open.add(pos);
+                links.add(new BaseLink(BlockPos.fromLong(current), BlockPos.fromLong(pos)));
+            }
             if (closed.size() >= cfg.baseGraphMaxNodes) break;
         }
         Output.chat("Found " + closed.size() + " nodes with " + links.size() + " links.");
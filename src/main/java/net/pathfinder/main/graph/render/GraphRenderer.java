@@ -11,9 +11,11 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
 import net.pathfinder.main.PathfinderMod;
+import net.pathfinder.main.Stats;
 import net.pathfinder.main.graph.DebugManager;
 import net.pathfinder.main.graph.PositionUtils;
 import net.pathfinder.main.graph.waypoint.GraphEditor;
+import net.pathfinder.main.graph.waypoint.PendingEdit;
 import net.pathfinder.main.graph.waypoint.TargetHolder;
 import net.pathfinder.main.graph.waypoint.WaypointIO;
 import net.pathfinder.main.graph.waypoint.data.LocationData;
@@ -23,8 +25,6 @@ import org.joml.Matrix4f;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static net.pathfinder.main.config.PFConfig.cfg;
@@ -60,6 +60,12 @@ public class GraphRenderer {
         drawLines(matrices, linesActive, cfg.lineColour4f);
         drawLines(matrices, teleportLinesActive, cfg.teleportColour4f);
 
+        if (!GraphEditor.pendingEdits.isEmpty()) {
+            setupRender(VertexFormat.DrawMode.DEBUG_LINES);
+            for (PendingEdit edit : GraphEditor.pendingEdits) drawLine(matrices, edit.from, edit.to, cfg.pendingLineColour4f);
+            endRender();
+        }
+
         LongObjectHashMap<Waypoint> oldWaypoints = GraphEditor.waypointsState;
         LongObjectHashMap<Waypoint> newWaypoints = GraphEditor.currentSelection;
 
@@ -101,58 +107,60 @@ public class GraphRenderer {
             drawBox(matrices, selected.vec3d(), 1, cfg.selectedColour4f, cfg.selectedFillColour4f);
     }
 
+    /**
+     * Rebuilds all elements from the current graph state on the client thread, which also owns the edited state,
+     * then swaps them in and filters them by range in the background.
+     */
     public static void updateElements() {
-        Future<?> future = PathfinderMod.executor.submit(() -> {
-            lines = new ArrayList<>();
-            teleportLines = new ArrayList<>();
-            lastPos = Objects.requireNonNull(MinecraftClient.getInstance().player).getChunkPos();
-
-            LongObjectHashMap<Waypoint> waypoints = GraphEditor.waypointsState;
-            LongObjectHashMap<Boolean> closed = new LongObjectHashMap<>(waypoints.size());
-
-            for (Waypoint waypoint : waypoints.values()) {
-                if (closed.containsKey(waypoint.id())) continue;
-                closed.put(waypoint.id(), Boolean.TRUE);
-                Vec3d vec3d1 = waypoint.pos().toCenterPos();
-                LocationData data1 = WaypointIO.getData().locations.get(waypoint.id());
-                if (data1 == null || !data1.isTeleport()) {
-                    for (long id : waypoint.neighbours()) {
-                        if (!closed.containsKey(id)) {
-                            Waypoint neighbour = waypoints.get(id);
-                            if (neighbour == null) neighbour = GraphEditor.currentSelection.get(id);
-                            if (neighbour != null) lines.add(new Pair<>(vec3d1, neighbour.pos().toCenterPos()));
-                        }
+        long startTime = System.nanoTime();
+        List<Pair<Vec3d, Vec3d>> newLines = new ArrayList<>();
+        List<Pair<Vec3d, Vec3d>> newTeleportLines = new ArrayList<>();
+        ClientPlayerEntity player = Objects.requireNonNull(MinecraftClient.getInstance().player);
+        lastPos = player.getChunkPos();
+
+        LongObjectHashMap<Waypoint> waypoints = GraphEditor.waypointsState;
+        LongObjectHashMap<Boolean> closed = new LongObjectHashMap<>(waypoints.size());
+
+        for (Waypoint waypoint : waypoints.values()) {
+            if (closed.containsKey(waypoint.id())) continue;
+            closed.put(waypoint.id(), Boolean.TRUE);
+            Vec3d vec3d1 = waypoint.pos().toCenterPos();
+            LocationData data1 = WaypointIO.getData().locations.get(waypoint.id());
+            if (data1 == null || !data1.isTeleport()) {
+                for (long id : waypoint.neighbours()) {
+                    if (!closed.containsKey(id)) {
+                        Waypoint neighbour = waypoints.get(id);
+                        if (neighbour == null) neighbour = GraphEditor.currentSelection.get(id);
+                        if (neighbour != null) newLines.add(new Pair<>(vec3d1, neighbour.pos().toCenterPos()));
                     }
                 }
-                else {
-                    for (long id : waypoint.neighbours()) {
-                        if (!closed.containsKey(id)) {
-                            Waypoint neighbour = waypoints.get(id);
-                            if (neighbour == null) neighbour = GraphEditor.currentSelection.get(id);
-                            if (neighbour != null) {
-                                LocationData data2 = WaypointIO.getData().locations.get(neighbour.id());
-                                if (data2 != null && data2.isTeleport())
-                                    teleportLines.add(new Pair<>(vec3d1, neighbour.pos().toCenterPos()));
-                                else
-                                    lines.add(new Pair<>(vec3d1, neighbour.pos().toCenterPos()));
-                            }
+            }
+            else {
+                for (long id : waypoint.neighbours()) {
+                    if (!closed.containsKey(id)) {
+                        Waypoint neighbour = waypoints.get(id);
+                        if (neighbour == null) neighbour = GraphEditor.currentSelection.get(id);
+                        if (neighbour != null) {
+                            LocationData data2 = WaypointIO.getData().locations.get(neighbour.id());
+                            if (data2 != null && data2.isTeleport())
+                                newTeleportLines.add(new Pair<>(vec3d1, neighbour.pos().toCenterPos()));
+                            else
+                                newLines.add(new Pair<>(vec3d1, neighbour.pos().toCenterPos()));
                         }
                     }
                 }
             }
-            teleports = new ArrayList<>();
-            for (LocationData info : GraphEditor.locationsState.values()) {
-                Waypoint teleport = Objects.requireNonNullElseGet(waypoints.get(info.id()), () -> GraphEditor.currentSelection.get(info.id()));
-                if (info.isTeleport()) teleports.add(teleport.teleportPos());
-            }
-        });
-        try {
-            future.get();
-            rangeUpdate(Objects.requireNonNull(MinecraftClient.getInstance().player).getBlockPos());
         }
-        catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
+        List<Vec3d> newTeleports = new ArrayList<>();
+        for (LocationData info : GraphEditor.locationsState.values()) {
+            Waypoint teleport = Objects.requireNonNullElseGet(waypoints.get(info.id()), () -> GraphEditor.currentSelection.get(info.id()));
+            if (info.isTeleport()) newTeleports.add(teleport.teleportPos());
         }
+        lines = newLines;
+        teleportLines = newTeleportLines;
+        teleports = newTeleports;
+        Stats.recordTime(Stats.Metric.RENDER_UPDATE_TIME, startTime);
+        rangeUpdate(player.getBlockPos());
     }
 
     public static void updatePosition(ClientPlayerEntity player) {
@@ -167,7 +175,10 @@ public class GraphRenderer {
     private static void rangeUpdate(BlockPos playerPos) {
         if (updateLocked.get()) return;
         updateLocked.set(true);
-        PathfinderMod.executor.submit(() -> {
+        List<Pair<Vec3d, Vec3d>> lines = GraphRenderer.lines;
+        List<Pair<Vec3d, Vec3d>> teleportLines = GraphRenderer.teleportLines;
+        List<Vec3d> teleports = GraphRenderer.teleports;
+        PathfinderMod.renderer.submit(() -> {
             try {
                 List<Pair<Vec3d, Vec3d>> newLines = new ArrayList<>();
                 for (Pair<Vec3d, Vec3d> line : lines) {
@@ -1,6 +1,7 @@
 package net.pathfinder.main.graph.waypoint;
 
 import io.netty.util.collection.LongObjectHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
@@ -36,6 +37,10 @@ public class GraphEditor {
     public static LongObjectHashMap<Waypoint> currentSelection;
 
     public static Waypoint selected;
+    /**
+     * Connections queued for A* searches, committed on the client thread once their paths are found.
+     */
+    public static final List<PendingEdit> pendingEdits = new ArrayList<>();
 
     public static void tick() {
         if (clickCooldown != 0) clickCooldown--;
@@ -64,18 +69,11 @@ public class GraphEditor {
         clickCooldown = 5;
 
         if (selected == null) {
-            if (!waypointsState.isEmpty() || !currentSelection.isEmpty()) {
-                Waypoint nearest = getNearest(newPos);
-                if (nearest == null) Output.chat("Couldn't find a valid nearby waypoint", Output.Color.RED);
-                else connectNearest(nearest, newPos); //Append to nearest
-            }
+            if (!waypointsState.isEmpty() || !currentSelection.isEmpty()) connectNearest(newPos); //Append to nearest
         }
         else {
             if (mode == STRAIGHT) connectStraight(selected, newPos);
-            else {
-                Waypoint end = processNewPath(selected, AstarBuilder.findAndReturn(selected.pos(), newPos));
-                if (mode == CONTINUOUS) selected = end; //Reassign current starting point
-            }
+            else connectTo(selected, newPos);
         }
     }
 
@@ -119,64 +117,146 @@ public class GraphEditor {
      * Connects two waypoints by building an A*-based path between them.
      */
     private static void connect(Waypoint waypoint1, Waypoint waypoint2) {
-        List<BlockPos> path = AstarBuilder.findAndReturn(waypoint1.pos(), waypoint2.pos());
+        PendingEdit edit = queueSearch(waypoint1.pos(), waypoint2.pos());
+        edit.job.future().thenAcceptAsync(result -> {
+            if (!finishPending(edit, waypoint1, waypoint2)) return;
+            List<BlockPos> path = result.path();
+
+            Waypoint last = waypoint1;
+            if (path.size() > 2) {
+                for (int i = 1; i < path.size() - 1; i++) {
+                    Waypoint current = new Waypoint(path.get(i));
+                    last.addNeighbour(current.id());
+                    current.addNeighbour(last.id());
+                    currentSelection.put(current.id(), current);
+                    last = current;
+                }
+            }
+            last.addNeighbour(waypoint2.id());
+            waypoint2.addNeighbour(last.id());
+            hasChanges = true;
+            GraphRenderer.updateElements();
+
+            Output.chat("Path created: " + waypoint1.id() + " - " + waypoint2.id() + ".");
+        }, client);
+    }
+
+    /**
+     * Extends graph from a waypoint to a position by building an A*-based path.
+     * In CONTINUOUS mode the new end waypoint is selected right away, so the next connection can be queued from it.
+     */
+    private static void connectTo(Waypoint start, BlockPos pos) {
+        Waypoint end = new Waypoint(pos);
+        PendingEdit edit = queueSearch(start.pos(), pos);
+        edit.job.future().thenAcceptAsync(result -> {
+            if (!finishPending(edit, start)) return;
+            if (result.path().size() < 2) {
+                if (selected == end) selected = start;
+                return;
+            }
+            processNewPath(start, result.path(), end);
+        }, client);
 
-        Waypoint last = waypoint1;
-        if (path.size() > 2) {
-            for (int i = 1; i < path.size() - 1; i++) {
+        if (mode == CONTINUOUS) selected = end; //Reassign current starting point
+    }
+
+    //todo connect to current standing position
+    /**
+     * Extends graph to a position by building an A*-based path to a true-nearest waypoint.
+     * All waypoints in range are goals of a single search, which ends at the one with the cheapest path.
+     */
+    private static void connectNearest(BlockPos pos) {
+        Long2ObjectOpenHashMap<Waypoint> goals = new Long2ObjectOpenHashMap<>();
+        Waypoint nearest = addGoals(goals, waypointsState, pos, null);
+        nearest = addGoals(goals, currentSelection, pos, nearest);
+
+        if (goals.isEmpty()) {
+            Output.chat("Couldn't find a valid nearby waypoint", Output.Color.RED);
+            return;
+        }
+        PendingEdit edit = new PendingEdit(pos, nearest.pos());
+        edit.job = AstarBuilder.findNearestAsync(pos, goals.keySet().toLongArray());
+        pendingEdits.add(edit);
+
+        edit.job.future().thenAcceptAsync(result -> {
+            if (!result.hasPath()) {
+                pendingEdits.remove(edit);
+                return;
+            }
+            List<BlockPos> path = result.path();
+            Waypoint waypoint = goals.get(path.get(path.size() - 1).asLong());
+            if (!finishPending(edit, waypoint)) return;
+
+            Waypoint last = waypoint;
+            for (int i = path.size() - 2; i > 0; i--) {
                 Waypoint current = new Waypoint(path.get(i));
                 last.addNeighbour(current.id());
                 current.addNeighbour(last.id());
                 currentSelection.put(current.id(), current);
                 last = current;
             }
-        }
-        last.addNeighbour(waypoint2.id());
-        waypoint2.addNeighbour(last.id());
-        hasChanges = true;
-        GraphRenderer.updateElements();
+            Waypoint end = new Waypoint(pos);
+            last.addNeighbour(end.id());
+            end.addNeighbour(last.id());
+            currentSelection.put(end.id(), end);
+            hasChanges = true;
+            GraphRenderer.updateElements();
 
-        Output.chat("Path created: " + waypoint1.id() + " - " + waypoint2.id() + ".");
+            Output.chat("Connected to nearest point: " + waypoint.coordinates());
+        }, client);
     }
 
-    //todo connect to current standing position
     /**
-     * Extends graph to a position by building an A*-based path to a true-nearest waypoint.
+     * Adds waypoints in range of a position to the goals, returning the one nearest to it (ignoring obstacles)
+     * out of them and the given nearest waypoint, which is shown as a placeholder line while the search runs.
      */
-    private static void connectNearest(Waypoint waypoint, BlockPos pos) {
-        Waypoint original = waypoint;
-        List<BlockPos> path = AstarBuilder.findAndReturn(pos, waypoint.pos());
-
-        int minDistance = PositionUtils.getSquaredDistance(waypoint, pos);
-        for (BlockPos node : path) {
-            Waypoint nearest = getNearest(node);
-            int distance = PositionUtils.getSquaredDistance(nearest, node);
+    private static Waypoint addGoals(Long2ObjectOpenHashMap<Waypoint> goals, LongObjectHashMap<Waypoint> waypoints, BlockPos pos, Waypoint nearest) {
+        int minDistance = nearest == null ? Integer.MAX_VALUE : PositionUtils.getSquaredDistance(pos, nearest.pos());
+        for (Waypoint waypoint : waypoints.values()) {
+            if (!PositionUtils.isInRange(pos, waypoint.pos(), cfg.nearestSearchRange)) continue;
+            goals.putIfAbsent(waypoint.pos().asLong(), waypoint);
 
+            int distance = PositionUtils.getSquaredDistance(pos, waypoint.pos());
             if (distance < minDistance) {
+                nearest = waypoint;
                 minDistance = distance;
-                waypoint = nearest;
             }
         }
-        if (waypoint != original) path = AstarBuilder.findAndReturn(pos, waypoint.pos());
+        return nearest;
+    }
 
-        Waypoint last = waypoint;
-        if (path.size() > 1) {
-            for (int i = 1; i < path.size() - 1; i++) {
-                Waypoint current = new Waypoint(path.get(i));
-                last.addNeighbour(current.id());
-                current.addNeighbour(last.id());
-                currentSelection.put(current.id(), current);
-                last = current;
+    /**
+     * Queues an editor search and adds its placeholder line.
+     */
+    private static PendingEdit queueSearch(BlockPos start, BlockPos end) {
+        PendingEdit edit = new PendingEdit(start, end);
+        edit.job = AstarBuilder.findAsync(start, end);
+        pendingEdits.add(edit);
+        return edit;
+    }
+
+    /**
+     * Removes a finished edit from pending ones. Returns false if the edit has to be dropped, either because it was
+     * cancelled or because some of its waypoints are no longer part of the graph, like an unfinished continuous path start.
+     */
+    private static boolean finishPending(PendingEdit edit, Waypoint... waypoints) {
+        if (!pendingEdits.remove(edit)) return false;
+
+        for (Waypoint waypoint : waypoints) {
+            if (waypointsState.get(waypoint.id()) != waypoint && currentSelection.get(waypoint.id()) != waypoint) {
+                Output.chat("Dropped connection to " + waypoint.coordinates() + ": waypoint no longer exists.", Output.Color.RED);
+                return false;
             }
         }
-        Waypoint end = new Waypoint(pos);
-        last.addNeighbour(end.id());
-        end.addNeighbour(last.id());
-        currentSelection.put(end.id(), end);
-        hasChanges = true;
-        GraphRenderer.updateElements();
+        return true;
+    }
 
-        Output.chat("Connected to nearest point: " + waypoint.coordinates());
+    /**
+     * Cancels all queued editor searches.
+     */
+    private static void cancelPending() {
+        for (PendingEdit edit : pendingEdits) edit.job.cancel();
+        pendingEdits.clear();
     }
 
     /**
@@ -251,11 +331,9 @@ public class GraphEditor {
     }
 
     /**
-     * Converts a path found using A* into a new graph segment.
+     * Converts a path found using A* into a new graph segment, ending with the given waypoint.
      */
-    private static Waypoint processNewPath(Waypoint start, List<BlockPos> path) {
-        if (path.size() < 2) return start;
-
+    private static void processNewPath(Waypoint start, List<BlockPos> path, Waypoint end) {
         Waypoint last = start;
         for (int i = 1; i < path.size() - 1; i++) {
             Waypoint current = new Waypoint(path.get(i));
@@ -264,12 +342,10 @@ public class GraphEditor {
             currentSelection.put(current.id(), current);
             last = current;
         }
-        Waypoint end = new Waypoint(path.get(path.size() - 1));
         last.addNeighbour(end.id());
         end.addNeighbour(last.id());
         currentSelection.put(end.id(), end);
         hasChanges = true;
-        return end;
     }
 
     //todo add save action clickEvent
@@ -286,6 +362,7 @@ public class GraphEditor {
 
     public static void clearSelection() {
         if (WaypointIO.notInitialized()) return;
+        cancelPending();
         currentSelection.clear();
         hasChanges = false;
 
@@ -474,6 +551,7 @@ public class GraphEditor {
     public static int discard() {
         if (WaypointIO.notInitialized()) return 1;
 
+        cancelPending();
         hasChanges = false;
         selected = null;
         currentSelection.clear();
@@ -490,6 +568,10 @@ public class GraphEditor {
     @SuppressWarnings("SameReturnValue")
     public static int toggleEditing() {
         if (!active && WaypointIO.notInitialized()) return 1;
+        if (active && !pendingEdits.isEmpty()) {
+            Output.chat("There are connections still being searched for, wait for them to finish.", Output.Color.RED);
+            return 1;
+        }
         if (active && hasChanges) {
             Output.chat("There are unappended graph changes. Append them or use `discard` command to drop them.", Output.Color.RED);
             return 1;
@@ -512,7 +594,7 @@ public class GraphEditor {
     }
 
     public static void toggleMode() {
-        if (!currentSelection.isEmpty()) {
+        if (!currentSelection.isEmpty() || !pendingEdits.isEmpty()) {
             Output.chat("Can't change mode: current selection isn't empty.");
             return;
         }
@@ -521,6 +603,7 @@ public class GraphEditor {
     }
 
     public static void clear() {
+        cancelPending();
         active = false;
         hasChanges = false;
         TargetHolder.targeted = null;
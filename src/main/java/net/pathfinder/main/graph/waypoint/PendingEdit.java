@@ -0,0 +1,20 @@
+package net.pathfinder.main.graph.waypoint;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import net.pathfinder.main.graph.astar.PathJob;
+
+/**
+ * A graph editor connection still being searched for, rendered as a straight placeholder line until its path is committed.
+ */
+public class PendingEdit {
+
+    public final Vec3d from;
+    public final Vec3d to;
+    PathJob job;
+
+    PendingEdit(BlockPos from, BlockPos to) {
+        this.from = from.toCenterPos();
+        this.to = to.toCenterPos();
+    }
+}
@@ -10,6 +10,7 @@ import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.pathfinder.main.Output;
+import net.pathfinder.main.graph.LiveWorldSource;
 import net.pathfinder.main.graph.PositionUtils;
 import net.pathfinder.main.graph.waypoint.data.DimensionData;
 import net.pathfinder.main.graph.waypoint.data.Waypoint;
@@ -54,7 +55,7 @@ public class WaypointIO {
                     Objects.requireNonNullElseGet(nearest, () -> getData().waypoints.values().stream().findAny().get()).coordinates());
             return 1;
         }
-        if (!PositionUtils.isValidPosition(player.clientWorld, pos)) {
+        if (!PositionUtils.isValidPosition(new LiveWorldSource(player.clientWorld), pos)) {
             Output.chat("Invalid position for initializing.");
             return 1;
         }
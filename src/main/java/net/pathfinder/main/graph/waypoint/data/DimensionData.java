@@ -5,7 +5,13 @@ import io.netty.util.collection.LongObjectHashMap;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3i;
 import net.pathfinder.main.Output;
+import net.pathfinder.main.PathfinderMod;
+import net.pathfinder.main.Stats;
 import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.waypoint.path.ContractionHierarchy;
+import net.pathfinder.main.graph.waypoint.path.Landmarks;
+import net.pathfinder.main.graph.waypoint.path.RoutingGraph;
+import net.pathfinder.main.graph.waypoint.path.RoutingMode;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -23,6 +29,9 @@ import static net.pathfinder.main.config.PFConfig.cfg;
 public class DimensionData {
 
     transient private Path path;
+    transient private volatile RoutingGraph routingGraph;
+    transient private volatile Landmarks landmarks;
+    transient private volatile ContractionHierarchy hierarchy;
 
     public long idTracker = 0L;
     public LongObjectHashMap<Waypoint> waypoints = new LongObjectHashMap<>();
@@ -37,6 +46,7 @@ public class DimensionData {
      */
     public static DimensionData read(Path path) {
         if (!Files.exists(path)) return new DimensionData().write(path);
+        long startTime = System.nanoTime();
         try {
             Inflater inflater = new Inflater();
             inflater.setInput(Files.readAllBytes(path));
@@ -48,7 +58,12 @@ public class DimensionData {
                 int decompressedSize = inflater.inflate(buffer);
                 outputStream.write(buffer, 0, decompressedSize);
             }
-            return new Gson().fromJson(outputStream.toString(StandardCharsets.UTF_8), DimensionData.class);
+            DimensionData data = new Gson().fromJson(outputStream.toString(StandardCharsets.UTF_8), DimensionData.class);
+            Stats.recordTime(Stats.Metric.DATA_READ_TIME, startTime);
+            data.routingGraph = RoutingGraph.compile(data);
+            data.readLandmarks(path);
+            if (cfg.routingMode == RoutingMode.CONTRACTION) data.readHierarchy(path);
+            return data;
         }
         catch (Exception e) {
             Output.logError("Couldn't read file " + path);
@@ -68,6 +83,7 @@ public class DimensionData {
      * Compresses and writes data to a file.
      */
     public DimensionData write(Path path) {
+        long startTime = System.nanoTime();
         try {
             Deflater deflater = new Deflater();
             deflater.setInput(new Gson().toJson(this).getBytes(StandardCharsets.UTF_8));
@@ -85,6 +101,7 @@ public class DimensionData {
                 Files.write(path, outputStream.toByteArray());
                 if (cfg.saveUncompressedData)
                     Files.writeString(Path.of(path + ".uncompressed"), new Gson().toJson(this));
+                Stats.recordTime(Stats.Metric.DATA_WRITE_TIME, startTime);
             }
             catch (IOException e) {
                 throw new RuntimeException(e);
@@ -94,9 +111,125 @@ public class DimensionData {
             Output.logError("Couldn't save file " + path);
             Output.logError(e.getMessage());
         }
+        routingGraph = RoutingGraph.compile(this);
+        updateLandmarks(path);
+        if (cfg.routingMode == RoutingMode.CONTRACTION) updateHierarchy(path);
+        else hierarchy = null;
         return this;
     }
 
+    /**
+     * Reads landmark tables saved next to the data file, computing them again if they're missing or outdated.
+     */
+    private void readLandmarks(Path path) {
+        try {
+            landmarks = Landmarks.read(getLandmarksPath(path), routingGraph, cfg.routingLandmarks);
+        }
+        catch (IOException e) {
+            Output.logError("Couldn't read file " + getLandmarksPath(path));
+        }
+        if (landmarks == null) updateLandmarks(path);
+    }
+
+    /**
+     * Computes landmark tables for the current routing graph in the background and saves them next to the data file.
+     * Routes are found with Dijkstra's until they're done. Tables for a graph replaced in the meantime are dropped.
+     */
+    private void updateLandmarks(Path path) {
+        RoutingGraph graph = routingGraph;
+        landmarks = null;
+        PathfinderMod.preprocessor.submit(() -> {
+            if (graph != routingGraph) return;
+            Landmarks computed = Landmarks.compute(graph, cfg.routingLandmarks);
+            if (graph != routingGraph) return;
+            landmarks = computed;
+            try {
+                computed.write(getLandmarksPath(path));
+            }
+            catch (IOException e) {
+                Output.logError("Couldn't save file " + getLandmarksPath(path));
+                Output.logError(e.getMessage());
+            }
+        });
+    }
+
+    private static Path getLandmarksPath(Path path) {
+        return Path.of(path + ".landmarks");
+    }
+
+    /**
+     * Reads the contraction hierarchy saved next to the data file, building it again if it's missing or outdated.
+     */
+    private void readHierarchy(Path path) {
+        try {
+            hierarchy = ContractionHierarchy.read(getHierarchyPath(path), routingGraph);
+        }
+        catch (IOException e) {
+            Output.logError("Couldn't read file " + getHierarchyPath(path));
+        }
+        if (hierarchy == null) updateHierarchy(path);
+    }
+
+    /**
+     * Builds the contraction hierarchy for the current routing graph in the background, after the landmark tables,
+     * and saves it next to the data file. Until it's done routes are found with the landmarks.
+     */
+    private void updateHierarchy(Path path) {
+        RoutingGraph graph = routingGraph;
+        hierarchy = null;
+        PathfinderMod.preprocessor.submit(() -> {
+            if (graph != routingGraph) return;
+            ContractionHierarchy computed = ContractionHierarchy.compute(graph);
+            if (graph != routingGraph) return;
+            hierarchy = computed;
+            try {
+                computed.write(getHierarchyPath(path));
+            }
+            catch (IOException e) {
+                Output.logError("Couldn't save file " + getHierarchyPath(path));
+                Output.logError(e.getMessage());
+            }
+        });
+    }
+
+    private static Path getHierarchyPath(Path path) {
+        return Path.of(path + ".ch");
+    }
+
+    /**
+     * Brings preprocessed routing data in line with changed routing settings. Landmark tables are computed again
+     * for a new landmark count, and the contraction hierarchy is read or built when switching to it, dropped otherwise.
+     */
+    public void onRoutingChanged(boolean modeChanged, boolean landmarksChanged) {
+        if (routingGraph == null) return;
+        if (landmarksChanged) updateLandmarks(path);
+        if (!modeChanged) return;
+        if (cfg.routingMode == RoutingMode.CONTRACTION) readHierarchy(path);
+        else hierarchy = null;
+    }
+
+    /**
+     * Returns the graph compiled for routing when the data was last read or written, compiling it if it wasn't yet.
+     */
+    public RoutingGraph getRoutingGraph() {
+        if (routingGraph == null) routingGraph = RoutingGraph.compile(this);
+        return routingGraph;
+    }
+
+    /**
+     * Returns landmark tables of the routing graph, or null if they're still being computed.
+     */
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Returns the contraction hierarchy of the routing graph, or null if it's disabled or still being built.
+     */
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
     /**
      * Used for getting the nearest waypoint from stable data.
      */
@@ -22,7 +22,14 @@ public class Waypoint {
     }
 
     public Waypoint(int x, int y, int z) {
-        this.id = nextID();
+        this(nextID(), x, y, z);
+    }
+
+    /**
+     * Creates a waypoint with a given id, for graphs built outside the loaded dimension data.
+     */
+    public Waypoint(long id, int x, int y, int z) {
+        this.id = id;
         this.x = x;
         this.y = y;
         this.z = z;
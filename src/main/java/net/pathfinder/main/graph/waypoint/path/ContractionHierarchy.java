@@ -0,0 +1,544 @@
+package net.pathfinder.main.graph.waypoint.path;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.pathfinder.main.Stats;
+import net.pathfinder.main.graph.astar.IndexedHeap;
+import net.pathfinder.main.graph.waypoint.data.Waypoint;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A contraction hierarchy over a {@link RoutingGraph}, answering route queries while exploring only a tiny part of the graph.
+ * Waypoints are contracted one by one from the least important, adding shortcuts between their neighbours wherever
+ * the route through them is the only shortest one. Queries run Dijkstra's from both ends at once, only ever moving up
+ * to more important waypoints, and unpack shortcuts on the best route back into original links.
+ * Links keep their direction, so one way teleports stay one way. Preprocessing is slow and meant to run in the background,
+ * queries can run from any thread.
+ */
+public class ContractionHierarchy {
+
+    private static final int VERSION = 1;
+    /**
+     * Max waypoints settled by a witness search while contracting and while estimating priorities.
+     * Searches giving up early only lead to extra shortcuts, which also slow down contraction of the waypoints left.
+     */
+    private static final int WITNESS_LIMIT = 500;
+    private static final int PRIORITY_WITNESS_LIMIT = 32;
+
+    private final RoutingGraph graph;
+    private final long fingerprint;
+    /**
+     * Original links followed by shortcuts, a shortcut being two links in sequence through a contracted waypoint.
+     * Parts of original links are -1.
+     */
+    private final int[] linkFrom;
+    private final int[] linkTo;
+    private final float[] linkWeights;
+    private final int[] firstParts;
+    private final int[] secondParts;
+    /**
+     * Links leading up to more important waypoints, links of waypoint i stored in upLinks from upOffsets[i] to upOffsets[i + 1].
+     * Their ends and weights are copied next to them, so that queries don't have to look them up.
+     */
+    private final int[] upOffsets;
+    private final int[] upLinks;
+    private final int[] upTargets;
+    private final float[] upWeights;
+    /**
+     * Links coming down from more important waypoints, stored the same way at the waypoint they lead to.
+     */
+    private final int[] downOffsets;
+    private final int[] downLinks;
+    private final int[] downTargets;
+    private final float[] downWeights;
+    private final ConcurrentLinkedQueue<Query> pool = new ConcurrentLinkedQueue<>();
+
+    private ContractionHierarchy(RoutingGraph graph, int[] linkFrom, int[] linkTo, float[] linkWeights, int[] firstParts,
+                                 int[] secondParts, int[] upOffsets, int[] upLinks, int[] downOffsets, int[] downLinks) {
+        this.graph = graph;
+        this.fingerprint = graph.getFingerprint();
+        this.linkFrom = linkFrom;
+        this.linkTo = linkTo;
+        this.linkWeights = linkWeights;
+        this.firstParts = firstParts;
+        this.secondParts = secondParts;
+        this.upOffsets = upOffsets;
+        this.upLinks = upLinks;
+        this.downOffsets = downOffsets;
+        this.downLinks = downLinks;
+        this.upTargets = new int[upLinks.length];
+        this.upWeights = new float[upLinks.length];
+        this.downTargets = new int[downLinks.length];
+        this.downWeights = new float[downLinks.length];
+        for (int i = 0; i < upLinks.length; i++) {
+            upTargets[i] = linkTo[upLinks[i]];
+            upWeights[i] = linkWeights[upLinks[i]];
+        }
+        for (int i = 0; i < downLinks.length; i++) {
+            downTargets[i] = linkFrom[downLinks[i]];
+            downWeights[i] = linkWeights[downLinks[i]];
+        }
+    }
+
+    /**
+     * Per-query working arrays for both directions, valid only where their stamp matches the current query.
+     */
+    private static class Query {
+        private final float[] forwardDistances;
+        private final float[] backwardDistances;
+        private final int[] forwardParents;
+        private final int[] backwardParents;
+        private final int[] forwardStamps;
+        private final int[] backwardStamps;
+        private final IndexedHeap forward = new IndexedHeap();
+        private final IndexedHeap backward = new IndexedHeap();
+        private int stamp = 0;
+
+        private Query(int size) {
+            this.forwardDistances = new float[size];
+            this.backwardDistances = new float[size];
+            this.forwardParents = new int[size];
+            this.backwardParents = new int[size];
+            this.forwardStamps = new int[size];
+            this.backwardStamps = new int[size];
+        }
+    }
+
+    /**
+     * State of the graph while it's being contracted. Links of contracted waypoints are removed from the lists
+     * of their neighbours, so the lists only ever hold the remaining graph.
+     */
+    private static class Contraction {
+        private final IntArrayList linkFrom = new IntArrayList();
+        private final IntArrayList linkTo = new IntArrayList();
+        private final FloatArrayList linkWeights = new FloatArrayList();
+        private final IntArrayList firstParts = new IntArrayList();
+        private final IntArrayList secondParts = new IntArrayList();
+        private final BitSet replaced = new BitSet();
+        private final IntArrayList[] outgoing;
+        private final IntArrayList[] incoming;
+        private final int[] contractedNeighbours;
+        private final int[] levels;
+        private final float[] witnessDistances;
+        private final int[] witnessStamps;
+        private final IndexedHeap witnessOpen = new IndexedHeap();
+        private int witnessStamp = 0;
+
+        private Contraction(RoutingGraph graph) {
+            int size = graph.size();
+            outgoing = new IntArrayList[size];
+            incoming = new IntArrayList[size];
+            contractedNeighbours = new int[size];
+            levels = new int[size];
+            witnessDistances = new float[size];
+            witnessStamps = new int[size];
+            for (int i = 0; i < size; i++) {
+                outgoing[i] = new IntArrayList(4);
+                incoming[i] = new IntArrayList(4);
+            }
+            for (int i = 0; i < size; i++) {
+                for (int link = graph.offsets[i]; link < graph.offsets[i + 1]; link++) {
+                    if (graph.targets[link] != i) addLink(i, graph.targets[link], graph.weights[link], -1, -1);
+                }
+            }
+        }
+
+        private int addLink(int from, int to, float weight, int first, int second) {
+            int link = linkFrom.size();
+            linkFrom.add(from);
+            linkTo.add(to);
+            linkWeights.add(weight);
+            firstParts.add(first);
+            secondParts.add(second);
+            outgoing[from].add(link);
+            incoming[to].add(link);
+            return link;
+        }
+
+        /**
+         * Adds a shortcut, replacing a longer link between the same waypoints. The replaced link is only unlisted,
+         * as it may still be a part of other shortcuts.
+         */
+        private void addShortcut(int from, int to, float weight, int first, int second) {
+            IntArrayList links = outgoing[from];
+            for (int i = 0; i < links.size(); i++) {
+                int link = links.getInt(i);
+                if (linkTo.getInt(link) != to) continue;
+                if (linkWeights.getFloat(link) <= weight) return;
+
+                links.removeInt(i);
+                incoming[to].rem(link);
+                replaced.set(link);
+                break;
+            }
+            addLink(from, to, weight, first, second);
+        }
+
+        /**
+         * Counts shortcuts needed to contract a waypoint, adding them if requested. A shortcut from u to x
+         * is needed unless a witness search from u finds a route to x avoiding the waypoint that is just as short.
+         */
+        private int contract(int node, boolean apply) {
+            int shortcuts = 0;
+            IntArrayList in = incoming[node];
+            IntArrayList out = outgoing[node];
+            for (int i = 0; i < in.size(); i++) {
+                int inLink = in.getInt(i);
+                int from = linkFrom.getInt(inLink);
+                float inWeight = linkWeights.getFloat(inLink);
+                float maxDistance = -1;
+                for (int j = 0; j < out.size(); j++) {
+                    int outLink = out.getInt(j);
+                    int to = linkTo.getInt(outLink);
+                    if (to != from) maxDistance = Math.max(maxDistance, inWeight + linkWeights.getFloat(outLink));
+                }
+                if (maxDistance < 0) continue;
+
+                witness(from, node, maxDistance, apply ? WITNESS_LIMIT : PRIORITY_WITNESS_LIMIT);
+                for (int j = 0; j < out.size(); j++) {
+                    int outLink = out.getInt(j);
+                    int to = linkTo.getInt(outLink);
+                    if (to == from) continue;
+
+                    float distance = inWeight + linkWeights.getFloat(outLink);
+                    if (witnessStamps[to] == witnessStamp && witnessDistances[to] <= distance) continue;
+                    shortcuts++;
+                    if (apply) addShortcut(from, to, distance, inLink, outLink);
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Limited Dijkstra's from a waypoint over the remaining graph, avoiding the waypoint being contracted.
+         * Reached waypoints get an upper bound of their distance, which is enough for a witness.
+         */
+        private void witness(int source, int avoided, float maxDistance, int limit) {
+            witnessStamp++;
+            witnessOpen.clear();
+            witnessDistances[source] = 0;
+            witnessStamps[source] = witnessStamp;
+            witnessOpen.push(source, 0);
+
+            for (int settled = 0; settled < limit && !witnessOpen.isEmpty(); settled++) {
+                if (witnessOpen.peekKey() > maxDistance) break;
+                int current = witnessOpen.poll();
+                float distance = witnessDistances[current];
+                IntArrayList links = outgoing[current];
+                for (int i = 0; i < links.size(); i++) {
+                    int link = links.getInt(i);
+                    int target = linkTo.getInt(link);
+                    if (target == avoided) continue;
+
+                    float newDistance = distance + linkWeights.getFloat(link);
+                    if (witnessStamps[target] == witnessStamp && witnessDistances[target] <= newDistance) continue;
+                    witnessStamps[target] = witnessStamp;
+                    witnessDistances[target] = newDistance;
+                    witnessOpen.push(target, newDistance);
+                }
+            }
+        }
+
+        /**
+         * Importance of a waypoint, lower being contracted first. Prefers waypoints adding few shortcuts
+         * compared to the links they remove, spreading contraction evenly over the graph and keeping the hierarchy shallow.
+         */
+        private float getPriority(int node) {
+            int links = incoming[node].size() + outgoing[node].size();
+            return 2 * (contract(node, false) - links) + contractedNeighbours[node] + levels[node];
+        }
+
+        private void remove(int node) {
+            IntArrayList in = incoming[node];
+            for (int i = 0; i < in.size(); i++) {
+                int link = in.getInt(i);
+                updateNeighbour(node, linkFrom.getInt(link));
+                outgoing[linkFrom.getInt(link)].rem(link);
+            }
+            IntArrayList out = outgoing[node];
+            for (int i = 0; i < out.size(); i++) {
+                int link = out.getInt(i);
+                updateNeighbour(node, linkTo.getInt(link));
+                incoming[linkTo.getInt(link)].rem(link);
+            }
+        }
+
+        private void updateNeighbour(int node, int neighbour) {
+            contractedNeighbours[neighbour]++;
+            levels[neighbour] = Math.max(levels[neighbour], levels[node] + 1);
+        }
+    }
+
+    /**
+     * Contracts the whole graph, ordering waypoints with lazily updated priorities: a waypoint taken from the queue
+     * is only contracted if its current priority is still the lowest, otherwise it's queued again.
+     */
+    public static ContractionHierarchy compute(RoutingGraph graph) {
+        long startTime = System.nanoTime();
+        int size = graph.size();
+        Contraction contraction = new Contraction(graph);
+        IndexedHeap queue = new IndexedHeap();
+        for (int i = 0; i < size; i++) queue.push(i, contraction.getPriority(i));
+
+        int[] ranks = new int[size];
+        int rank = 0;
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            float priority = contraction.getPriority(node);
+            if (!queue.isEmpty() && priority > queue.peekKey()) {
+                queue.push(node, priority);
+                continue;
+            }
+            contraction.contract(node, true);
+            contraction.remove(node);
+            ranks[node] = rank++;
+        }
+
+        int links = contraction.linkFrom.size();
+        int[] linkFrom = contraction.linkFrom.toIntArray();
+        int[] linkTo = contraction.linkTo.toIntArray();
+        int[] upOffsets = new int[size + 1];
+        int[] downOffsets = new int[size + 1];
+        //replaced links are left out of the search, they're still needed for unpacking
+        for (int link = 0; link < links; link++) {
+            if (contraction.replaced.get(link)) continue;
+            if (ranks[linkTo[link]] > ranks[linkFrom[link]]) upOffsets[linkFrom[link] + 1]++;
+            else downOffsets[linkTo[link] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            upOffsets[i + 1] += upOffsets[i];
+            downOffsets[i + 1] += downOffsets[i];
+        }
+
+        int[] upLinks = new int[upOffsets[size]];
+        int[] downLinks = new int[downOffsets[size]];
+        int[] nextUp = new int[size];
+        int[] nextDown = new int[size];
+        for (int link = 0; link < links; link++) {
+            if (contraction.replaced.get(link)) continue;
+            int from = linkFrom[link];
+            int to = linkTo[link];
+            if (ranks[to] > ranks[from]) upLinks[upOffsets[from] + nextUp[from]++] = link;
+            else downLinks[downOffsets[to] + nextDown[to]++] = link;
+        }
+
+        Stats.recordTime(Stats.Metric.CONTRACTION_TIME, startTime);
+        return new ContractionHierarchy(graph, linkFrom, linkTo, contraction.linkWeights.toFloatArray(),
+                contraction.firstParts.toIntArray(), contraction.secondParts.toIntArray(), upOffsets, upLinks, downOffsets, downLinks);
+    }
+
+    public boolean isFor(RoutingGraph graph) {
+        return this.graph == graph;
+    }
+
+    /**
+     * Finds the shortest route between two waypoints, including both ends, the same way {@link RoutingGraph#findRoute} does.
+     * Returns null if either waypoint isn't part of the graph or the end can't be reached.
+     */
+    public List<DijkstraNode> findRoute(Waypoint start, Waypoint end) {
+        int startIndex = graph.indexOf(start);
+        int endIndex = graph.indexOf(end);
+        if (startIndex < 0 || endIndex < 0) return null;
+
+        long startTime = System.nanoTime();
+        Query query = acquire();
+        int stamp = query.stamp;
+        IndexedHeap forward = query.forward;
+        IndexedHeap backward = query.backward;
+        forward.clear();
+        backward.clear();
+        long operations = forward.getOperations() + backward.getOperations();
+
+        query.forwardDistances[startIndex] = 0;
+        query.forwardParents[startIndex] = -1;
+        query.forwardStamps[startIndex] = stamp;
+        forward.push(startIndex, 0);
+        query.backwardDistances[endIndex] = 0;
+        query.backwardParents[endIndex] = -1;
+        query.backwardStamps[endIndex] = stamp;
+        backward.push(endIndex, 0);
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        int expanded = 0;
+
+        //a direction is done once nothing left in it can lead to a shorter route, the next waypoint is taken from the closer one
+        while (true) {
+            boolean forwardDone = forward.isEmpty() || forward.peekKey() >= best;
+            boolean backwardDone = backward.isEmpty() || backward.peekKey() >= best;
+            if (forwardDone && backwardDone) break;
+            expanded++;
+
+            if (!forwardDone && (backwardDone || forward.peekKey() <= backward.peekKey())) {
+                int current = forward.poll();
+                float distance = query.forwardDistances[current];
+                if (query.backwardStamps[current] == stamp && distance + query.backwardDistances[current] < best) {
+                    best = distance + query.backwardDistances[current];
+                    meeting = current;
+                }
+                if (isStalled(current, distance, downOffsets, downTargets, downWeights, query.forwardDistances, query.forwardStamps, stamp)) continue;
+                relax(current, distance, upOffsets, upLinks, upTargets, upWeights, query.forwardDistances, query.forwardParents, query.forwardStamps, stamp, forward);
+            }
+            else {
+                int current = backward.poll();
+                float distance = query.backwardDistances[current];
+                if (query.forwardStamps[current] == stamp && distance + query.forwardDistances[current] < best) {
+                    best = distance + query.forwardDistances[current];
+                    meeting = current;
+                }
+                if (isStalled(current, distance, upOffsets, upTargets, upWeights, query.backwardDistances, query.backwardStamps, stamp)) continue;
+                relax(current, distance, downOffsets, downLinks, downTargets, downWeights, query.backwardDistances, query.backwardParents, query.backwardStamps, stamp, backward);
+            }
+        }
+
+        List<DijkstraNode> route = meeting >= 0 ? getRoute(startIndex, meeting, query) : null;
+        Stats.recordTime(Stats.Metric.CH_QUERY_TIME, startTime);
+        Stats.record(Stats.Metric.CH_QUERY_EXPANDED, expanded);
+        Stats.record(Stats.Metric.CH_QUERY_HEAP_OPERATIONS, forward.getOperations() + backward.getOperations() - operations);
+        release(query);
+        return route;
+    }
+
+    /**
+     * Stall-on-demand: a waypoint reached more cheaply through a more important waypoint the search has seen
+     * can't be on the shortest route, so there's no need to search further from it.
+     */
+    private static boolean isStalled(int current, float distance, int[] offsets, int[] targets, float[] weights,
+                                     float[] distances, int[] stamps, int stamp) {
+        for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+            int target = targets[i];
+            if (stamps[target] == stamp && distances[target] + weights[i] < distance) return true;
+        }
+        return false;
+    }
+
+    private static void relax(int current, float distance, int[] offsets, int[] links, int[] targets, float[] weights,
+                              float[] distances, int[] parents, int[] stamps, int stamp, IndexedHeap open) {
+        for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+            int target = targets[i];
+            float newDistance = distance + weights[i];
+            if (stamps[target] == stamp && distances[target] <= newDistance) continue;
+
+            stamps[target] = stamp;
+            distances[target] = newDistance;
+            parents[target] = links[i];
+            open.push(target, newDistance);
+        }
+    }
+
+    /**
+     * Joins links of both searches at the meeting waypoint and unpacks them into waypoints along original links.
+     */
+    private List<DijkstraNode> getRoute(int start, int meeting, Query query) {
+        IntArrayList forwardLinks = new IntArrayList();
+        for (int current = meeting; query.forwardParents[current] >= 0; current = linkFrom[query.forwardParents[current]]) {
+            forwardLinks.add(query.forwardParents[current]);
+        }
+        IntArrayList backwardLinks = new IntArrayList();
+        for (int current = meeting; query.backwardParents[current] >= 0; current = linkTo[query.backwardParents[current]]) {
+            backwardLinks.add(query.backwardParents[current]);
+        }
+
+        //links are taken from the top of a stack, the first link of the route last in, and shortcuts are replaced
+        //by their parts until only original links are left
+        IntArrayList stack = new IntArrayList(forwardLinks.size() + backwardLinks.size());
+        for (int i = backwardLinks.size() - 1; i >= 0; i--) stack.add(backwardLinks.getInt(i));
+        stack.addAll(forwardLinks);
+
+        List<DijkstraNode> route = new ArrayList<>();
+        route.add(graph.createNode(start, 0));
+        float distance = 0;
+        while (!stack.isEmpty()) {
+            int link = stack.popInt();
+            if (firstParts[link] >= 0) {
+                stack.add(secondParts[link]);
+                stack.add(firstParts[link]);
+                continue;
+            }
+            distance += linkWeights[link];
+            route.add(graph.createNode(linkTo[link], distance));
+        }
+        return route;
+    }
+
+    private Query acquire() {
+        Query query = pool.poll();
+        if (query == null) query = new Query(graph.size());
+        query.stamp++;
+        return query;
+    }
+
+    private void release(Query query) {
+        pool.offer(query);
+    }
+
+    /**
+     * Writes the compressed hierarchy to a file, stamped with the graph fingerprint.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(path))))) {
+            output.writeInt(VERSION);
+            output.writeLong(fingerprint);
+            output.writeInt(graph.size());
+            output.writeInt(linkFrom.length);
+            for (int i = 0; i < linkFrom.length; i++) {
+                output.writeInt(linkFrom[i]);
+                output.writeInt(linkTo[i]);
+                output.writeFloat(linkWeights[i]);
+                output.writeInt(firstParts[i]);
+                output.writeInt(secondParts[i]);
+            }
+            writeArray(output, upOffsets);
+            writeArray(output, upLinks);
+            writeArray(output, downOffsets);
+            writeArray(output, downLinks);
+        }
+    }
+
+    /**
+     * Reads a hierarchy from a file, if it exists and was written for the given graph. Otherwise, returns null.
+     */
+    public static ContractionHierarchy read(Path path, RoutingGraph graph) throws IOException {
+        if (!Files.exists(path)) return null;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(path))))) {
+            if (input.readInt() != VERSION) return null;
+            if (input.readLong() != graph.getFingerprint() || input.readInt() != graph.size()) return null;
+
+            int links = input.readInt();
+            int[] linkFrom = new int[links];
+            int[] linkTo = new int[links];
+            float[] linkWeights = new float[links];
+            int[] firstParts = new int[links];
+            int[] secondParts = new int[links];
+            for (int i = 0; i < links; i++) {
+                linkFrom[i] = input.readInt();
+                linkTo[i] = input.readInt();
+                linkWeights[i] = input.readFloat();
+                firstParts[i] = input.readInt();
+                secondParts[i] = input.readInt();
+            }
+            return new ContractionHierarchy(graph, linkFrom, linkTo, linkWeights, firstParts, secondParts,
+                    readArray(input), readArray(input), readArray(input), readArray(input));
+        }
+    }
+
+    private static void writeArray(DataOutputStream output, int[] array) throws IOException {
+        output.writeInt(array.length);
+        for (int value : array) output.writeInt(value);
+    }
+
+    private static int[] readArray(DataInputStream input) throws IOException {
+        int[] array = new int[input.readInt()];
+        for (int i = 0; i < array.length; i++) array[i] = input.readInt();
+        return array;
+    }
+}
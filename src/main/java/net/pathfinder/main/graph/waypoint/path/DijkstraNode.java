@@ -1,23 +1,23 @@
 package net.pathfinder.main.graph.waypoint.path;
 
 import net.minecraft.util.math.BlockPos;
-import net.pathfinder.main.graph.waypoint.WaypointIO;
-import net.pathfinder.main.graph.waypoint.data.LocationData;
 import net.pathfinder.main.graph.waypoint.data.Waypoint;
-import org.jetbrains.annotations.NotNull;
 
 /**
- * A node type used in path building.
+ * A waypoint of a route found on the graph, with its distance from the start of the route.
  */
-public class DijkstraNode implements Comparable<DijkstraNode> {
+public class DijkstraNode {
 
     final Waypoint waypoint;
-    DijkstraNode previous;
-    float distance;
+    private final boolean teleport;
+    private final boolean oneWay;
+    final float distance;
 
-    public DijkstraNode(Waypoint waypoint) {
+    public DijkstraNode(Waypoint waypoint, boolean teleport, boolean oneWay, float distance) {
         this.waypoint = waypoint;
-        this.distance = Float.MAX_VALUE;
+        this.teleport = teleport;
+        this.oneWay = oneWay;
+        this.distance = distance;
     }
 
     public long id() {
@@ -29,19 +29,10 @@ public class DijkstraNode implements Comparable<DijkstraNode> {
     }
 
     public boolean isTeleport() {
-        LocationData info = WaypointIO.getData().locations.get(waypoint.id());
-        if (info == null) return false;
-        else return info.isTeleport();
+        return teleport;
     }
 
     public boolean isOneWay() {
-        LocationData info = WaypointIO.getData().locations.get(waypoint.id());
-        if (info == null) return false;
-        else return info.isOneWay();
-    }
-
-    @Override
-    public int compareTo(@NotNull DijkstraNode o) {
-        return Float.compare(distance, o.distance);
+        return oneWay;
     }
 }
@@ -0,0 +1,210 @@
+package net.pathfinder.main.graph.waypoint.path;
+
+import net.pathfinder.main.Stats;
+import net.pathfinder.main.graph.astar.IndexedHeap;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Distances from and to a few landmark waypoints of a {@link RoutingGraph}, which give lower bounds of route lengths
+ * through the triangle inequality for A* (ALT). Unlike straight line distance the bounds stay admissible with teleports,
+ * as they're measured along links. Landmarks are picked by farthest-point selection, each one as far as possible
+ * from the ones before, so that long routes mostly lead towards or away from one of them.
+ */
+public class Landmarks {
+
+    public static final int MIN_COUNT = 8;
+    public static final int MAX_COUNT = 16;
+    private static final int VERSION = 1;
+    private static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+
+    private final long fingerprint;
+    private final int size;
+    private final int count;
+    private final int[] landmarks;
+    /**
+     * Distance from landmark l to waypoint i at [i * count + l], infinite if the waypoint can't be reached.
+     */
+    private final float[] from;
+    /**
+     * Distance from waypoint i to landmark l at [i * count + l], infinite if the landmark can't be reached.
+     */
+    private final float[] to;
+
+    private Landmarks(long fingerprint, int size, int[] landmarks, float[] from, float[] to) {
+        this.fingerprint = fingerprint;
+        this.size = size;
+        this.count = landmarks.length;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Picks landmarks and measures their distances with a full Dijkstra's in both directions per landmark.
+     * Graphs with fewer waypoints than requested get a landmark on every waypoint.
+     */
+    public static Landmarks compute(RoutingGraph graph, int count) {
+        long startTime = System.nanoTime();
+        int size = graph.size();
+        count = clampCount(size, count);
+        int[] landmarks = new int[count];
+        float[] from = new float[size * count];
+        float[] to = new float[size * count];
+        if (size == 0) return new Landmarks(graph.getFingerprint(), size, landmarks, from, to);
+
+        //links reversed, so that distances to a landmark can be measured from it
+        int[] reverseOffsets = new int[size + 1];
+        int[] reverseTargets = new int[graph.targets.length];
+        float[] reverseWeights = new float[graph.weights.length];
+        for (int target : graph.targets) reverseOffsets[target + 1]++;
+        for (int i = 0; i < size; i++) reverseOffsets[i + 1] += reverseOffsets[i];
+        int[] next = Arrays.copyOf(reverseOffsets, size);
+        for (int i = 0; i < size; i++) {
+            for (int link = graph.offsets[i]; link < graph.offsets[i + 1]; link++) {
+                int position = next[graph.targets[link]]++;
+                reverseTargets[position] = i;
+                reverseWeights[position] = graph.weights[link];
+            }
+        }
+
+        float[] distances = new float[size];
+        float[] nearest = new float[size];
+        Arrays.fill(nearest, UNREACHABLE);
+        IndexedHeap open = new IndexedHeap();
+
+        //the first landmark is the waypoint farthest from an arbitrary one, every next one is the farthest from all before it.
+        //waypoints not reached by any landmark yet count as the farthest, so each separate part of the graph gets one
+        measure(0, graph.offsets, graph.targets, graph.weights, distances, open);
+        int landmark = farthest(distances);
+        for (int l = 0; l < count; l++) {
+            landmarks[l] = landmark;
+            measure(landmark, graph.offsets, graph.targets, graph.weights, distances, open);
+            for (int i = 0; i < size; i++) {
+                from[i * count + l] = distances[i];
+                nearest[i] = Math.min(nearest[i], distances[i]);
+            }
+            measure(landmark, reverseOffsets, reverseTargets, reverseWeights, distances, open);
+            for (int i = 0; i < size; i++) to[i * count + l] = distances[i];
+            landmark = farthest(nearest);
+        }
+
+        Stats.recordTime(Stats.Metric.LANDMARKS_COMPUTE_TIME, startTime);
+        return new Landmarks(graph.getFingerprint(), size, landmarks, from, to);
+    }
+
+    /**
+     * Dijkstra's from a waypoint to every other one, leaving unreachable ones infinitely far.
+     */
+    private static void measure(int source, int[] offsets, int[] targets, float[] weights, float[] distances, IndexedHeap open) {
+        Arrays.fill(distances, UNREACHABLE);
+        distances[source] = 0;
+        open.clear();
+        open.push(source, 0);
+
+        //a settled waypoint is never improved on, so it doesn't need to be marked separately
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            float distance = distances[current];
+            for (int link = offsets[current]; link < offsets[current + 1]; link++) {
+                int target = targets[link];
+                float newDistance = distance + weights[link];
+                if (newDistance >= distances[target]) continue;
+
+                distances[target] = newDistance;
+                open.push(target, newDistance);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of landmarks picked for a graph when the given count is requested.
+     */
+    private static int clampCount(int size, int count) {
+        return Math.min(size, Math.max(MIN_COUNT, Math.min(MAX_COUNT, count)));
+    }
+
+    private static int farthest(float[] distances) {
+        int farthest = 0;
+        for (int i = 1; i < distances.length; i++) {
+            if (distances[i] > distances[farthest]) farthest = i;
+        }
+        return farthest;
+    }
+
+    /**
+     * Checks whether the tables were computed for this graph, or for one with the exact same waypoints and links.
+     */
+    public boolean isFor(RoutingGraph graph) {
+        return size == graph.size() && fingerprint == graph.getFingerprint();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a lower bound of the route length between two waypoints, the largest of those given by the landmarks.
+     * Distances are skipped where either waypoint is unreachable, as they say nothing about the route.
+     */
+    float getBound(int node, int target) {
+        float bound = 0;
+        int nodeRow = node * count;
+        int targetRow = target * count;
+        for (int l = 0; l < count; l++) {
+            float fromNode = from[nodeRow + l];
+            float fromTarget = from[targetRow + l];
+            if (fromNode != UNREACHABLE && fromTarget != UNREACHABLE) bound = Math.max(bound, fromTarget - fromNode);
+
+            float toNode = to[nodeRow + l];
+            float toTarget = to[targetRow + l];
+            if (toNode != UNREACHABLE && toTarget != UNREACHABLE) bound = Math.max(bound, toNode - toTarget);
+        }
+        return bound;
+    }
+
+    /**
+     * Writes compressed tables to a file, stamped with the graph fingerprint.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(path))))) {
+            output.writeInt(VERSION);
+            output.writeLong(fingerprint);
+            output.writeInt(size);
+            output.writeInt(count);
+            for (int landmark : landmarks) output.writeInt(landmark);
+            for (float distance : from) output.writeFloat(distance);
+            for (float distance : to) output.writeFloat(distance);
+        }
+    }
+
+    /**
+     * Reads tables from a file, if it exists and was written for the given graph with the requested landmark count.
+     * Otherwise, returns null.
+     */
+    public static Landmarks read(Path path, RoutingGraph graph, int count) throws IOException {
+        if (!Files.exists(path)) return null;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(path))))) {
+            if (input.readInt() != VERSION) return null;
+            long fingerprint = input.readLong();
+            int size = input.readInt();
+            if (fingerprint != graph.getFingerprint() || size != graph.size()) return null;
+
+            int stored = input.readInt();
+            if (stored != clampCount(size, count)) return null;
+
+            int[] landmarks = new int[stored];
+            float[] from = new float[size * landmarks.length];
+            float[] to = new float[size * landmarks.length];
+            for (int l = 0; l < landmarks.length; l++) landmarks[l] = input.readInt();
+            for (int i = 0; i < from.length; i++) from[i] = input.readFloat();
+            for (int i = 0; i < to.length; i++) to[i] = input.readFloat();
+            return new Landmarks(fingerprint, size, landmarks, from, to);
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package net.pathfinder.main.graph.waypoint.path;
 
-import io.netty.util.collection.LongObjectHashMap;
-import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.Vec3i;
 import net.pathfinder.main.Output;
+import net.pathfinder.main.graph.BlockSource;
 import net.pathfinder.main.graph.PositionUtils;
 import net.pathfinder.main.graph.astar.AstarBuilder;
 import net.pathfinder.main.graph.waypoint.WaypointIO;
+import net.pathfinder.main.graph.waypoint.data.DimensionData;
 import net.pathfinder.main.graph.waypoint.data.Waypoint;
 
 import java.util.*;
@@ -19,7 +19,7 @@ import static net.pathfinder.main.config.PFConfig.cfg;
 public class PathBuilder {
 
     /**
-     * Calculates the path by running Dijkstra's on a graph and connecting start/end segments.
+     * Calculates the path by searching the compiled graph in the routing mode set in config and connecting start/end segments.
      */
     public static PathNode getPath(Vec3i start, Vec3i end) {
         if (WaypointIO.getData() == null) {
@@ -34,12 +34,17 @@ public class PathBuilder {
             return null;
         }
 
+        List<DijkstraNode> path = findRoute(WaypointIO.getData(), startWaypoint, endWaypoint);
+        if (path == null) {
+            Output.chat("Couldn't find a path: the destination isn't connected to the graph near the player.");
+            return null;
+        }
+
         //Starting segment
         PathNode head = new PathNode(getNearestPoint(start, startWaypoint), false, false);
         PathNode current = head;
 
         //Graph segment
-        List<DijkstraNode> path = runDijkstra(startWaypoint, endWaypoint);
         for (DijkstraNode node : path) {
             PathNode newNode = new PathNode(node.pos(), node.isTeleport(), node.isOneWay());
             current.next = newNode;
@@ -53,52 +58,17 @@ public class PathBuilder {
         return head;
     }
 
-    private static List<DijkstraNode> runDijkstra(Waypoint start, Waypoint end) {
-        LongObjectHashMap<DijkstraNode> nodes = new LongObjectHashMap<>();
-        WaypointIO.getData().waypoints.values()
-                .forEach(waypoint -> nodes.put(waypoint.id(), new DijkstraNode(waypoint)));
-
-        DijkstraNode startNode = nodes.get(start.id());
-        startNode.distance = 0;
-
-        Queue<DijkstraNode> open = new PriorityQueue<>();
-        LongObjectHashMap<Boolean> closed = new LongObjectHashMap<>();
-        open.add(startNode);
-
-        while (!open.isEmpty()) {
-            DijkstraNode current = open.poll();
-
-            if (current.id() == end.id()) {
-                List<DijkstraNode> path = new ArrayList<>();
-
-                while (current != null) {
-                    path.add(current);
-                    current = current.previous;
-                }
-                Collections.reverse(path);
-                return path;
-            }
+    /**
+     * Finds the route with the contraction hierarchy or landmarks if enabled, falling back to the next simpler search
+     * while they're being computed.
+     */
+    private static List<DijkstraNode> findRoute(DimensionData data, Waypoint start, Waypoint end) {
+        RoutingGraph graph = data.getRoutingGraph();
+        ContractionHierarchy hierarchy = cfg.routingMode == RoutingMode.CONTRACTION ? data.getHierarchy() : null;
+        if (hierarchy != null && hierarchy.isFor(graph)) return hierarchy.findRoute(start, end);
 
-            for (long l : current.waypoint.neighbours()) {
-                if (closed.containsKey(l)) continue;
-                DijkstraNode neighbour = nodes.get(l);
-
-                float newDistance;
-                if (current.isTeleport() && neighbour.isTeleport()) {
-                    if (neighbour.isOneWay()) continue;
-                    newDistance = current.distance;
-                }
-                else newDistance = current.distance + PositionUtils.getDistance(neighbour.pos(), current.pos());
-
-                if (neighbour.distance > newDistance) {
-                    neighbour.distance = newDistance;
-                    neighbour.previous = current;
-                }
-                open.add(neighbour);
-            }
-            closed.put(current.id(), Boolean.TRUE);
-        }
-        throw new RuntimeException("Failed to find a path using the waypoint graph. This shouldn't be possible!");
+        Landmarks landmarks = cfg.routingMode != RoutingMode.DIJKSTRA ? data.getLandmarks() : null;
+        return graph.findRoute(start, end, landmarks);
     }
 
     /**
@@ -214,10 +184,10 @@ public class PathBuilder {
         return toFloatArray(pos2);
     }
 
-    public static float[] getVisiblePointInPath(ClientWorld world, Vec3i playerPos, PathNode node) {
+    public static float[] getVisiblePointInPath(BlockSource source, Vec3i playerPos, PathNode node) {
         PathNode visible = node;
         while (PositionUtils.getSquaredDistance(node) < 900) {
-            if (AstarBuilder.isLinkValid(world, playerPos, node)) visible = node;
+            if (AstarBuilder.isLinkValid(source, playerPos, node)) visible = node;
             node = node.next;
             if (node == null) break;
         }
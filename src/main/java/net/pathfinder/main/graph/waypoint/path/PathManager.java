@@ -19,6 +19,8 @@ import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
 import net.pathfinder.main.Output;
+import net.pathfinder.main.graph.BlockSource;
+import net.pathfinder.main.graph.LiveWorldSource;
 import net.pathfinder.main.graph.PositionUtils;
 import net.pathfinder.main.graph.astar.AstarBuilder;
 
@@ -133,13 +135,14 @@ public class PathManager {
         int distance = Math.max((client.options.getClampedViewDistance() - 2) * 16, 32);
         distance = distance * distance;
 
+        BlockSource source = new LiveWorldSource(Objects.requireNonNull(client.world));
         PathNode start = nearest;
         PathNode end = nearest.next.next;
 
         while (end.next != null
                 && PositionUtils.getSquaredDistance(start) < distance
                 && PositionUtils.getSquaredDistance(end) < distance) {
-            if (AstarBuilder.isLinkValid(client.world, start, end)) start.next = end;
+            if (AstarBuilder.isLinkValid(source, start, end)) start.next = end;
             else start = start.next;
             end = end.next;
         }
@@ -184,7 +187,7 @@ public class PathManager {
         float segmentLength, localDistance;
         float[] nearestPoint;
         if (!pathReached) {
-            nearestPoint = PathBuilder.getVisiblePointInPath(client.world, client.player.getBlockPos(), nearest);
+            nearestPoint = PathBuilder.getVisiblePointInPath(new LiveWorldSource(Objects.requireNonNull(client.world)), client.player.getBlockPos(), nearest);
             segmentLength = PositionUtils.getDistance(nearestPoint[0], nearestPoint[1], nearestPoint[2]);
             if (segmentLength > 0.1f) {
                 localDistance = 0;
@@ -0,0 +1,231 @@
+package net.pathfinder.main.graph.waypoint.path;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.pathfinder.main.Stats;
+import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.astar.IndexedHeap;
+import net.pathfinder.main.graph.waypoint.data.DimensionData;
+import net.pathfinder.main.graph.waypoint.data.LocationData;
+import net.pathfinder.main.graph.waypoint.data.Waypoint;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An immutable snapshot of a waypoint graph compiled for routing. Waypoints get dense indices in order of their ids, links are stored
+ * as compressed adjacency arrays with precomputed weights, teleport links between teleports weighing nothing
+ * and links into one way teleports left out. Queries only allocate their result, working arrays are reused through a pool,
+ * so snapshots can be queried from any thread.
+ */
+public class RoutingGraph {
+
+    private final Waypoint[] waypoints;
+    private final Long2IntOpenHashMap indices;
+    private final BitSet teleports;
+    private final BitSet oneWays;
+    /**
+     * Links of waypoint i are stored in {@link #targets} and {@link #weights} from offsets[i] to offsets[i + 1].
+     */
+    final int[] offsets;
+    final int[] targets;
+    final float[] weights;
+    /**
+     * Hash of waypoint ids, positions, flags and links, used to tell whether precomputed data still fits the graph.
+     */
+    private final long fingerprint;
+    private final ConcurrentLinkedQueue<Query> pool = new ConcurrentLinkedQueue<>();
+
+    private RoutingGraph(Waypoint[] waypoints, Long2IntOpenHashMap indices, BitSet teleports, BitSet oneWays,
+                         int[] offsets, int[] targets, float[] weights, long fingerprint) {
+        this.waypoints = waypoints;
+        this.indices = indices;
+        this.teleports = teleports;
+        this.oneWays = oneWays;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Per-query working arrays. Entries are only valid if their stamp matches the current query,
+     * which avoids clearing them between queries.
+     */
+    private static class Query {
+        private final float[] distances;
+        private final int[] parents;
+        private final int[] stamps;
+        private final int[] settled;
+        private final float[] bounds;
+        private final IndexedHeap open = new IndexedHeap();
+        private int stamp = 0;
+
+        private Query(int size) {
+            this.distances = new float[size];
+            this.parents = new int[size];
+            this.stamps = new int[size];
+            this.settled = new int[size];
+            this.bounds = new float[size];
+        }
+    }
+
+    public static RoutingGraph compile(DimensionData data) {
+        long startTime = System.nanoTime();
+        int size = data.waypoints.size();
+        Waypoint[] waypoints = data.waypoints.values().toArray(new Waypoint[0]);
+        Arrays.sort(waypoints, Comparator.comparingLong(Waypoint::id));
+        Long2IntOpenHashMap indices = new Long2IntOpenHashMap(size);
+        indices.defaultReturnValue(-1);
+        BitSet teleports = new BitSet(size);
+        BitSet oneWays = new BitSet(size);
+
+        int links = 0;
+        for (int i = 0; i < size; i++) {
+            Waypoint waypoint = waypoints[i];
+            indices.put(waypoint.id(), i);
+            links += waypoint.neighbours().size();
+
+            LocationData location = data.locations.get(waypoint.id());
+            if (location == null) continue;
+            if (location.isTeleport()) teleports.set(i);
+            if (location.isOneWay()) oneWays.set(i);
+        }
+
+        int[] offsets = new int[size + 1];
+        int[] targets = new int[links];
+        float[] weights = new float[links];
+        int link = 0;
+        long fingerprint = size;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = link;
+            Waypoint waypoint = waypoints[i];
+            fingerprint = fingerprint * 31 + waypoint.id();
+            fingerprint = ((fingerprint * 31 + waypoint.x()) * 31 + waypoint.y()) * 31 + waypoint.z();
+            fingerprint = fingerprint * 31 + (teleports.get(i) ? 1 : 0) + (oneWays.get(i) ? 2 : 0);
+            for (long id : waypoint.neighbours()) {
+                int target = indices.get(id);
+                if (target < 0) continue;
+
+                if (teleports.get(i) && teleports.get(target)) {
+                    if (oneWays.get(target)) continue;
+                    weights[link] = 0;
+                }
+                else weights[link] = PositionUtils.getDistance(waypoint.pos(), waypoints[target].pos());
+                targets[link++] = target;
+                fingerprint = fingerprint * 31 + target;
+            }
+        }
+        offsets[size] = link;
+
+        Stats.recordTime(Stats.Metric.ROUTING_COMPILE_TIME, startTime);
+        return new RoutingGraph(waypoints, indices, teleports, oneWays, offsets, targets, weights, fingerprint);
+    }
+
+    public int size() {
+        return waypoints.length;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the dense index of a waypoint, or -1 if it isn't part of the graph.
+     */
+    int indexOf(Waypoint waypoint) {
+        return indices.get(waypoint.id());
+    }
+
+    DijkstraNode createNode(int index, float distance) {
+        return new DijkstraNode(waypoints[index], teleports.get(index), oneWays.get(index), distance);
+    }
+
+    /**
+     * Finds the shortest route between two waypoints, including both ends. Uses A* guided by landmark bounds
+     * if tables computed for this graph are given, Dijkstra's otherwise. Both always find the shortest route.
+     * Returns null if either waypoint isn't part of the graph or the end can't be reached.
+     */
+    public List<DijkstraNode> findRoute(Waypoint start, Waypoint end, Landmarks landmarks) {
+        int startIndex = indexOf(start);
+        int endIndex = indexOf(end);
+        if (startIndex < 0 || endIndex < 0) return null;
+        if (landmarks != null && !landmarks.isFor(this)) landmarks = null;
+
+        long startTime = System.nanoTime();
+        Query query = acquire();
+        int stamp = query.stamp;
+        float[] distances = query.distances;
+        int[] parents = query.parents;
+        int[] stamps = query.stamps;
+        int[] settled = query.settled;
+        float[] bounds = query.bounds;
+        IndexedHeap open = query.open;
+        open.clear();
+        long operations = open.getOperations();
+
+        distances[startIndex] = 0;
+        parents[startIndex] = -1;
+        stamps[startIndex] = stamp;
+        open.push(startIndex, 0);
+        int expanded = 0;
+        boolean found = false;
+
+        //every waypoint is queued at most once, improving the distance of a queued one only moves it up the heap.
+        //landmark bounds are consistent, so waypoints are still settled with their shortest distance when polled
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            settled[current] = stamp;
+            expanded++;
+            if (current == endIndex) {
+                found = true;
+                break;
+            }
+
+            float distance = distances[current];
+            for (int link = offsets[current]; link < offsets[current + 1]; link++) {
+                int target = targets[link];
+                if (settled[target] == stamp) continue;
+
+                float newDistance = distance + weights[link];
+                if (stamps[target] == stamp) {
+                    if (distances[target] <= newDistance) continue;
+                }
+                else {
+                    stamps[target] = stamp;
+                    bounds[target] = landmarks == null ? 0 : landmarks.getBound(target, endIndex);
+                }
+
+                distances[target] = newDistance;
+                parents[target] = current;
+                open.push(target, newDistance + bounds[target]);
+            }
+        }
+
+        List<DijkstraNode> route = found ? getRoute(endIndex, parents, distances) : null;
+        Stats.recordTime(Stats.Metric.DIJKSTRA_TIME, startTime);
+        Stats.record(Stats.Metric.DIJKSTRA_EXPANDED, expanded);
+        Stats.record(Stats.Metric.DIJKSTRA_HEAP_OPERATIONS, open.getOperations() - operations);
+        release(query);
+        return route;
+    }
+
+    private List<DijkstraNode> getRoute(int end, int[] parents, float[] distances) {
+        List<DijkstraNode> route = new ArrayList<>();
+        for (int current = end; current >= 0; current = parents[current]) {
+            route.add(createNode(current, distances[current]));
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    private Query acquire() {
+        Query query = pool.poll();
+        if (query == null) query = new Query(waypoints.length);
+        query.stamp++;
+        return query;
+    }
+
+    private void release(Query query) {
+        pool.offer(query);
+    }
+}
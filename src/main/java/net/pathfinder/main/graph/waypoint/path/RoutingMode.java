@@ -0,0 +1,16 @@
+package net.pathfinder.main.graph.waypoint.path;
+
+/**
+ * Searches used by {@link RoutingGraph} to find routes on the waypoint graph, selected in config.
+ */
+public enum RoutingMode {
+    DIJKSTRA("Dijkstra"),
+    LANDMARKS("A* with landmarks"),
+    CONTRACTION("Contraction hierarchy");
+
+    RoutingMode(String name) {
+        this.name = name;
+    }
+
+    public final String name;
+}
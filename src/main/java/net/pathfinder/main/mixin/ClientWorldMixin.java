@@ -0,0 +1,23 @@
+package net.pathfinder.main.mixin;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.WorldChanges;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin used for observing block changes in the client world, called for every block state that actually changed.
+ * Changes are passed to {@link WorldChanges}.
+ */
+@Mixin(ClientWorld.class)
+public abstract class ClientWorldMixin {
+
+	@Inject(method = "scheduleBlockRerenderIfNeeded", at = @At(value = "HEAD"))
+	private void onBlockChanged(BlockPos pos, BlockState old, BlockState updated, CallbackInfo ci) {
+		WorldChanges.onBlockChanged(pos);
+	}
+}
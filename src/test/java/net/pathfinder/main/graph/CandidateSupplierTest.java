@@ -0,0 +1,171 @@
+package net.pathfinder.main.graph;
+
+import it.unimi.dsi.fastutil.longs.Long2FloatMap;
+import it.unimi.dsi.fastutil.longs.Long2FloatOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+import static net.pathfinder.main.graph.NavigationFlags.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks movement rules of {@link CandidateSupplier} on small hand-built scenes, and that searching backwards with
+ * {@link CandidateSupplier#getPredecessors(long, CandidateBuffer)} gives exactly the reversed forward moves.
+ */
+class CandidateSupplierTest {
+
+    private static final int STONE = withImplied(SOLID);
+    private static final int LADDER = withImplied(SOLID | PASSABLE | CLIMBABLE);
+    private static final int VOLUMES = 2_000;
+    private static final int[] FLAGS = {PASSABLE, STANDABLE | STANDABLE_SOLID, DANGEROUS, CLIMBABLE, WATER_PASSABLE, FENCE, COBWEB, STAIRS, SOLID};
+    private static final float[] CHANCES = {0.7f, 0.5f, 0.1f, 0.15f, 0.15f, 0.1f, 0.1f, 0.15f, 0.5f};
+
+    private final WalkabilityMemo memo = new WalkabilityMemo();
+    private final CandidateBuffer buffer = new CandidateBuffer();
+
+    @Test
+    void flatGroundGivesLevelMovesOnly() {
+        FlagVolume volume = floor();
+        Long2FloatMap moves = candidates(volume, BlockPos.ORIGIN);
+
+        assertEquals(8, moves.size());
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                if (x == 0 && z == 0) continue;
+                float cost = x != 0 && z != 0 ? cfg.diagonalCost : cfg.straightCost;
+                assertEquals(cost, moves.get(BlockPos.asLong(x, 0, z)), 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    void stepsUpAndDropsDown() {
+        FlagVolume volume = floor();
+        volume.set(1, 0, 0, STONE);
+        volume.set(-1, -1, 0, PASSABLE);
+        volume.set(-1, -2, 0, STONE);
+        Long2FloatMap moves = candidates(volume, BlockPos.ORIGIN);
+
+        assertEquals(cfg.diagonalCost + cfg.yChangeCost, moves.get(BlockPos.asLong(1, 1, 0)), 1e-6f);
+        assertEquals(cfg.diagonalCost + cfg.yChangeCost, moves.get(BlockPos.asLong(-1, -1, 0)), 1e-6f);
+        assertFalse(moves.containsKey(BlockPos.asLong(1, 0, 0)));
+        assertFalse(moves.containsKey(BlockPos.asLong(-1, 0, 0)));
+    }
+
+    @Test
+    void stepUpNeedsHeadroom() {
+        FlagVolume volume = floor();
+        volume.set(1, 0, 0, STONE);
+        volume.set(0, 2, 0, STONE);
+
+        assertFalse(candidates(volume, BlockPos.ORIGIN).containsKey(BlockPos.asLong(1, 1, 0)));
+    }
+
+    @Test
+    void diagonalNeedsOneFreeSide() {
+        FlagVolume volume = floor();
+        volume.fill(1, 0, 0, 1, 1, 0, STONE);
+        assertTrue(candidates(volume, BlockPos.ORIGIN).containsKey(BlockPos.asLong(1, 0, 1)));
+
+        volume.fill(0, 0, 1, 0, 1, 1, STONE);
+        assertFalse(candidates(volume, BlockPos.ORIGIN).containsKey(BlockPos.asLong(1, 0, 1)));
+    }
+
+    @Test
+    void climbsLadders() {
+        FlagVolume volume = floor();
+        volume.fill(0, 1, 0, 0, 3, 0, LADDER);
+        Long2FloatMap moves = candidates(volume, BlockPos.ORIGIN);
+
+        assertEquals(cfg.verticalCost + cfg.yChangeCost, moves.get(BlockPos.asLong(0, 1, 0)), 1e-6f);
+    }
+
+    @Test
+    void avoidsDangerousBlocks() {
+        FlagVolume volume = floor();
+        volume.set(1, 0, 0, PASSABLE | DANGEROUS);
+
+        assertFalse(candidates(volume, BlockPos.ORIGIN).containsKey(BlockPos.asLong(1, 0, 0)));
+    }
+
+    @Test
+    void predecessorsMatchReversedCandidates() {
+        Random random = new Random(19);
+        int moves = 0;
+
+        for (int i = 0; i < VOLUMES; i++) {
+            FlagVolume volume = randomVolume(random);
+            CandidateSupplier supplier = new CandidateSupplier(volume, BlockPos.ORIGIN, memo);
+
+            //every predecessor of a position in the inner box is within a block of it, so its moves are all read from the volume
+            for (int x = -1; x <= 1; x++) {
+                for (int y = -1; y <= 1; y++) {
+                    for (int z = -1; z <= 1; z++) {
+                        long pos = BlockPos.asLong(x, y, z);
+                        Long2FloatMap expected = new Long2FloatOpenHashMap();
+                        for (int dx = -1; dx <= 1; dx++) {
+                            for (int dy = -1; dy <= 1; dy++) {
+                                for (int dz = -1; dz <= 1; dz++) {
+                                    long previous = BlockPos.asLong(x + dx, y + dy, z + dz);
+                                    supplier.getCandidates(previous, buffer);
+                                    for (int c = 0; c < buffer.size(); c++) {
+                                        if (buffer.position(c) == pos) expected.put(previous, buffer.cost(c));
+                                    }
+                                }
+                            }
+                        }
+
+                        supplier.getPredecessors(pos, buffer);
+                        assertEquals(expected.size(), buffer.size(), "Predecessor count differs at " + BlockPos.fromLong(pos));
+                        for (int c = 0; c < buffer.size(); c++) {
+                            long previous = buffer.position(c);
+                            assertTrue(expected.containsKey(previous), "Unexpected predecessor " + BlockPos.fromLong(previous));
+                            assertEquals(expected.get(previous), buffer.cost(c), 1e-6f);
+                        }
+                        moves += buffer.size();
+                    }
+                }
+            }
+        }
+        //guards against a generator that never produces moves, which would make the comparison vacuous
+        assertTrue(moves > VOLUMES, "Random volumes produced too few moves: " + moves);
+    }
+
+    private Long2FloatMap candidates(BlockSource source, BlockPos pos) {
+        new CandidateSupplier(source, pos, memo).getCandidates(pos.asLong(), buffer);
+        Long2FloatMap moves = new Long2FloatOpenHashMap();
+        for (int i = 0; i < buffer.size(); i++) moves.put(buffer.position(i), buffer.cost(i));
+        return moves;
+    }
+
+    /**
+     * Air above a stone floor at y = -1.
+     */
+    private static FlagVolume floor() {
+        FlagVolume volume = new FlagVolume(-4, -4, -4, 9, 9, 9);
+        volume.fill(-4, -4, -4, 4, -1, 4, STONE);
+        return volume;
+    }
+
+    /**
+     * Random flags around the origin, covering the stencils of all positions within two blocks of it.
+     */
+    private static FlagVolume randomVolume(Random random) {
+        FlagVolume volume = new FlagVolume(-3, -5, -3, 7, 11, 7);
+        for (int x = -3; x <= 3; x++) {
+            for (int y = -5; y <= 5; y++) {
+                for (int z = -3; z <= 3; z++) {
+                    int flags = 0;
+                    for (int i = 0; i < FLAGS.length; i++) {
+                        if (random.nextFloat() < CHANCES[i]) flags |= FLAGS[i];
+                    }
+                    volume.set(x, y, z, flags);
+                }
+            }
+        }
+        return volume;
+    }
+}
@@ -0,0 +1,23 @@
+package net.pathfinder.main.graph;
+
+import static net.pathfinder.main.graph.NavigationFlags.*;
+
+/**
+ * Flags of common blocks, described by the properties {@link NavigationFlags} reads from their states and tags,
+ * with implied flags added the same way, for building volumes without a client.
+ */
+public class FlagPresets {
+
+    public static final int AIR = withImplied(PASSABLE);
+    public static final int STONE = withImplied(SOLID);
+    public static final int STAIRS = withImplied(SOLID | NavigationFlags.STAIRS);
+    public static final int FENCE = withImplied(SOLID | NavigationFlags.FENCE);
+    public static final int DOOR = withImplied(SOLID | PASSABLE);
+    public static final int FENCE_GATE = withImplied(SOLID | PASSABLE);
+    public static final int LADDER = withImplied(SOLID | PASSABLE | CLIMBABLE);
+    public static final int CARPET = withImplied(SOLID | PASSABLE | NavigationFlags.CARPET);
+    public static final int SNOW = CARPET;
+    public static final int WATER = withImplied(PASSABLE | WATER_PASSABLE | NavigationFlags.WATER);
+    public static final int COBWEB = withImplied(PASSABLE | NavigationFlags.COBWEB);
+    public static final int LAVA = withImplied(PASSABLE | DANGEROUS);
+}
@@ -0,0 +1,232 @@
+package net.pathfinder.main.graph;
+
+import it.unimi.dsi.fastutil.longs.Long2FloatMap;
+import it.unimi.dsi.fastutil.longs.Long2FloatOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+import static net.pathfinder.main.graph.NavigationFlags.*;
+import static net.pathfinder.main.graph.PositionUtils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the decision tables of {@link MoveTable}, as used by {@link CandidateSupplier}, against the movement rules
+ * they were derived from. The rules are kept here in their original branching form, see {@link BaselineRules}.
+ */
+class MoveTableTest {
+
+    private static final int NEIGHBOURHOODS = 200_000;
+    /**
+     * Flags read by movement rules, each set with its own probability so that valid positions aren't too rare.
+     */
+    private static final int[] FLAGS = {PASSABLE, STANDABLE, DANGEROUS, CLIMBABLE, WATER_PASSABLE, FENCE, COBWEB, STAIRS, SOLID};
+    private static final float[] CHANCES = {0.7f, 0.5f, 0.15f, 0.2f, 0.2f, 0.15f, 0.15f, 0.2f, 0.5f};
+
+    @Test
+    void matchesBaselineOnRandomNeighbourhoods() {
+        Random random = new Random(6);
+        WalkabilityMemo memo = new WalkabilityMemo();
+        CandidateBuffer buffer = new CandidateBuffer();
+        int moves = 0;
+
+        for (int i = 0; i < NEIGHBOURHOODS; i++) {
+            FlagVolume volume = randomNeighbourhood(random);
+            new CandidateSupplier(volume, BlockPos.ORIGIN, memo).getCandidates(BlockPos.ORIGIN.asLong(), buffer);
+            Long2FloatMap expected = BaselineRules.getCandidates(volume, 0, 0, 0);
+
+            assertEquals(expected.size(), buffer.size(), () -> "Move count differs in " + describe(volume));
+            for (int c = 0; c < buffer.size(); c++) {
+                long pos = buffer.position(c);
+                assertTrue(expected.containsKey(pos), () -> "Unexpected move to " + BlockPos.fromLong(pos) + " in " + describe(volume));
+                assertEquals(expected.get(pos), buffer.cost(c), 1e-6f, () -> "Cost differs for " + BlockPos.fromLong(pos) + " in " + describe(volume));
+            }
+            moves += buffer.size();
+        }
+        //guards against a generator that never produces moves, which would make the comparison vacuous
+        assertTrue(moves > NEIGHBOURHOODS, "Random neighbourhoods produced too few moves: " + moves);
+    }
+
+    @Test
+    void allFlagCombinationsOfCenterColumn() {
+        //every combination of the 3 block center column the vertical rules look at, with a standable floor around it
+        int[] values = {0, PASSABLE, PASSABLE | CLIMBABLE | STANDABLE, PASSABLE | DANGEROUS, STANDABLE | SOLID, PASSABLE | WATER_PASSABLE | CLIMBABLE | STANDABLE};
+        WalkabilityMemo memo = new WalkabilityMemo();
+        CandidateBuffer buffer = new CandidateBuffer();
+
+        for (int a : values) {
+            for (int b : values) {
+                for (int c : values) {
+                    for (int d : values) {
+                        FlagVolume volume = new FlagVolume(-1, -2, -1, 3, 5, 3);
+                        volume.fill(-1, -2, -1, 1, -2, 1, STANDABLE | SOLID);
+                        volume.set(0, -2, 0, a);
+                        volume.set(0, -1, 0, b);
+                        volume.set(0, 0, 0, c);
+                        volume.set(0, 1, 0, d);
+
+                        new CandidateSupplier(volume, BlockPos.ORIGIN, memo).getCandidates(BlockPos.ORIGIN.asLong(), buffer);
+                        Long2FloatMap expected = BaselineRules.getCandidates(volume, 0, 0, 0);
+                        assertEquals(expected.size(), buffer.size(), () -> "Move count differs in " + describe(volume));
+                        for (int i = 0; i < buffer.size(); i++) {
+                            assertEquals(expected.get(buffer.position(i)), buffer.cost(i), 1e-6f);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static FlagVolume randomNeighbourhood(Random random) {
+        FlagVolume volume = new FlagVolume(-1, -2, -1, 3, 5, 3);
+        for (int x = -1; x <= 1; x++) {
+            for (int y = -2; y <= 2; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    int flags = 0;
+                    for (int i = 0; i < FLAGS.length; i++) {
+                        if (random.nextFloat() < CHANCES[i]) flags |= FLAGS[i];
+                    }
+                    volume.set(x, y, z, flags);
+                }
+            }
+        }
+        return volume;
+    }
+
+    private static String describe(FlagVolume volume) {
+        StringBuilder builder = new StringBuilder("neighbourhood [x][y][z]:");
+        for (int x = -1; x <= 1; x++) {
+            for (int y = -2; y <= 2; y++) {
+                builder.append(y == -2 ? "\n" : " | ");
+                for (int z = -1; z <= 1; z++) builder.append(Integer.toHexString(volume.getFlags(x, y, z))).append(' ');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Movement rules evaluated one by one from single block reads, as they were before being compiled into tables.
+     */
+    private static class BaselineRules {
+
+        private final BlockSource source;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final Long2FloatMap candidates = new Long2FloatOpenHashMap();
+
+        private BaselineRules(BlockSource source, int x, int y, int z) {
+            this.source = source;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        static Long2FloatMap getCandidates(BlockSource source, int x, int y, int z) {
+            BaselineRules rules = new BaselineRules(source, x, y, z);
+            for (int xVec = -1; xVec <= 1; xVec++) {
+                for (int zVec = -1; zVec <= 1; zVec++) {
+                    if (xVec == 0 && zVec == 0) continue;
+                    boolean diagonal = xVec != 0 && zVec != 0;
+                    if (diagonal) {
+                        rules.moveDiagonal0(xVec, zVec);
+                        rules.moveDiagonal1(xVec, zVec);
+                        rules.moveDiagonal2(xVec, zVec);
+                    }
+                    else {
+                        rules.moveStraight0(xVec, zVec);
+                        rules.moveStraight1(xVec, zVec);
+                        rules.moveStraight2(xVec, zVec);
+                    }
+                }
+            }
+            rules.moveDown();
+            rules.moveUp();
+            return rules.candidates;
+        }
+
+        private void moveStraight0(int xVec, int zVec) {
+            if (isValid(xVec, -1, zVec) && isPassable(at(xVec, 1, zVec))) addNode(xVec, -1, zVec, cfg.diagonalCost, true);
+        }
+
+        private void moveDiagonal0(int xVec, int zVec) {
+            boolean b1 = isValid(xVec, -1, zVec);
+            boolean b2 = isPassable(at(xVec, 1, zVec));
+            boolean b3 = isPassable(at(0, 0, zVec)) && isPassable(at(0, 1, zVec));
+            boolean b4 = isPassable(at(xVec, 0, 0)) && isPassable(at(xVec, 1, 0));
+
+            if (b1 && b2 && (b3 || b4)) addNode(xVec, -1, zVec, cfg.cubeDiagonalCost, true);
+        }
+
+        private void moveStraight1(int xVec, int zVec) {
+            if (isValid(xVec, 0, zVec)) addNode(xVec, 0, zVec, cfg.straightCost, false);
+        }
+
+        private void moveDiagonal1(int xVec, int zVec) {
+            boolean b1 = isValid(xVec, 0, zVec);
+            boolean b2 = isPassable(at(0, 0, zVec)) && isPassable(at(0, 1, zVec));
+            boolean b3 = isPassable(at(xVec, 0, 0)) && isPassable(at(xVec, 1, 0));
+
+            if (b1 && (b2 || b3)) addNode(xVec, 0, zVec, cfg.diagonalCost, false);
+        }
+
+        private void moveStraight2(int xVec, int zVec) {
+            boolean b1 = isValid(xVec, 1, zVec) && notFence(at(xVec, 0, zVec));
+            boolean b2 = isSolid(at(0, -1, 0));
+            boolean b3 = isPassable(at(0, 2, 0));
+
+            if (b1 && b2 && b3) addNode(xVec, 1, zVec, cfg.diagonalCost, true);
+        }
+
+        private void moveDiagonal2(int xVec, int zVec) {
+            boolean b1 = isValid(xVec, 1, zVec) && notFence(at(xVec, 0, zVec));
+            boolean b2 = isSolid(at(0, -1, 0));
+            boolean b3 = isPassable(at(0, 1, zVec)) && isPassable(at(0, 2, zVec));
+            boolean b4 = isPassable(at(xVec, 1, 0)) && isPassable(at(xVec, 2, 0));
+            boolean b5 = isPassable(at(0, 2, 0));
+
+            if (b1 && b2 && (b3 || b4) && b5) addNode(xVec, 1, zVec, cfg.cubeDiagonalCost, true);
+        }
+
+        private void moveDown() {
+            int below = at(0, -1, 0);
+            boolean climb = isClimbable(below) && isPassable(at(0, 0, 0));
+            boolean drop = isStandable(at(0, -2, 0)) && isPassable(below) && isSafe(below);
+
+            if (climb || drop) addNode(0, -1, 0, cfg.verticalCost, true);
+        }
+
+        private void moveUp() {
+            int current = at(0, 0, 0);
+            boolean climb = isClimbable(at(0, 1, 0)) && isPassable(at(0, 2, 0));
+            boolean step = isClimbable(current) && isStandable(current) && isPassable(at(0, 1, 0)) && isPassable(at(0, 2, 0));
+
+            if (climb || step) addNode(0, 1, 0, cfg.verticalCost, true);
+        }
+
+        private boolean isValid(int xVec, int yVec, int zVec) {
+            int current = at(xVec, yVec, zVec);
+            return isStandable(at(xVec, yVec - 1, zVec)) && isPassable(current) && isSafe(current) && isPassable(at(xVec, yVec + 1, zVec));
+        }
+
+        private int at(int xVec, int yVec, int zVec) {
+            return source.getFlags(x + xVec, y + yVec, z + zVec);
+        }
+
+        private void addNode(int xVec, int yVec, int zVec, float cost, boolean yChange) {
+            int flags1 = at(xVec, yVec - 1, zVec);
+            int flags2 = at(xVec, yVec, zVec);
+            int flags3 = at(xVec, yVec + 1, zVec);
+
+            if (yChange) cost += cfg.yChangeCost;
+            if (((flags1 | flags2 | flags3) & WATER_PASSABLE) != 0) cost *= cfg.waterMulti;
+            if (((flags2 | flags3) & COBWEB) != 0) cost += cfg.cobwebMulti;
+            if (yChange && (flags1 & STAIRS) != 0) cost = cfg.stairsCost;
+
+            candidates.put(BlockPos.asLong(x + xVec, y + yVec, z + zVec), cost);
+        }
+    }
+}
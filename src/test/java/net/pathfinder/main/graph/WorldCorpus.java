@@ -0,0 +1,290 @@
+package net.pathfinder.main.graph;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static net.pathfinder.main.graph.FlagPresets.*;
+
+/**
+ * Generator of deterministic synthetic worlds for benchmarks and tests, stored as cubic {@link FlagVolume}s
+ * with the minimum corner at the origin. The same kind, size and seed always produce the same volume.
+ * Volumes are dense, a 512 block cube takes 256 MB.
+ */
+public class WorldCorpus {
+
+    public static final int MIN_SIZE = 32;
+    public static final int MAX_SIZE = 512;
+
+    public enum Kind {
+        /**
+         * Streets between fenced lots with gates, multi-storey buildings with doors and ladders between floors.
+         */
+        CITY,
+        /**
+         * Solid stone carved by winding, mostly horizontal tunnels.
+         */
+        CAVES,
+        /**
+         * Stacked stone floors twelve blocks apart, connected only by ladder and water shafts.
+         */
+        SHAFTS,
+        /**
+         * A maze of three block wide corridors, with lava in the bottom of many wall blocks next to them.
+         */
+        LAVA_CORRIDORS,
+        /**
+         * Rolling hills covered in patches of carpet and snow.
+         */
+        SOFT_FLOORS,
+        /**
+         * A shallow sea over a stone floor, with floating islands that can't be reached from below.
+         */
+        ISLANDS
+    }
+
+    public static FlagVolume generate(Kind kind, int size, long seed) {
+        if (size < MIN_SIZE || size > MAX_SIZE)
+            throw new IllegalArgumentException("Size has to be between " + MIN_SIZE + " and " + MAX_SIZE + ", got " + size);
+
+        FlagVolume volume = new FlagVolume(0, 0, 0, size, size, size);
+        Random random = new Random(seed);
+        switch (kind) {
+            case CITY -> city(volume, size, random);
+            case CAVES -> caves(volume, size, random);
+            case SHAFTS -> shafts(volume, size, random);
+            case LAVA_CORRIDORS -> lavaCorridors(volume, size, random);
+            case SOFT_FLOORS -> softFloors(volume, size, random);
+            case ISLANDS -> islands(volume, size, random);
+        }
+        return volume;
+    }
+
+    /**
+     * Picks random valid walking positions, packed with {@link BlockPos#asLong()}. Returns fewer positions
+     * if the volume has too few of them to be found by random probing.
+     */
+    public static long[] samplePositions(FlagVolume volume, int count, long seed) {
+        Random random = new Random(seed);
+        long[] positions = new long[count];
+        int found = 0;
+        for (long attempt = 0; found < count && attempt < count * 100_000L; attempt++) {
+            int x = volume.getMinX() + random.nextInt(volume.getSizeX());
+            int y = volume.getMinY() + 1 + random.nextInt(volume.getSizeY() - 2);
+            int z = volume.getMinZ() + random.nextInt(volume.getSizeZ());
+            if (PositionUtils.isValidWalkPosition(volume, x, y, z)) positions[found++] = BlockPos.asLong(x, y, z);
+        }
+        return found == count ? positions : Arrays.copyOf(positions, found);
+    }
+
+    private static void city(FlagVolume volume, int size, Random random) {
+        int ground = size / 8;
+        int lot = 16;
+        int maxFloors = Math.min(6, (size - ground - 2) / 4);
+        volume.fill(0, 0, 0, size - 1, ground - 1, size - 1, STONE);
+
+        for (int lotX = 0; lotX + lot <= size; lotX += lot) {
+            for (int lotZ = 0; lotZ + lot <= size; lotZ += lot) {
+                //four block wide streets on two sides, a fence with a gate along the front of the lot
+                int minX = lotX + 4;
+                int minZ = lotZ + 4;
+                int maxX = lotX + lot - 1;
+                int maxZ = lotZ + lot - 1;
+                volume.fill(minX, ground, minZ, maxX, ground, minZ, FENCE);
+                volume.set(minX + 1 + random.nextInt(lot - 6), ground, minZ, FENCE_GATE);
+                if (maxFloors < 1) continue;
+
+                int floors = 1 + random.nextInt(maxFloors);
+                int x0 = minX + 1;
+                int z0 = minZ + 2;
+                int x1 = maxX - 1;
+                int z1 = maxZ - 1;
+                int roof = ground + floors * 4;
+                volume.fill(x0, ground, z0, x1, roof, z1, STONE);
+                volume.fill(x0 + 1, ground, z0 + 1, x1 - 1, roof - 1, z1 - 1, AIR);
+                for (int floor = 1; floor < floors; floor++) {
+                    volume.fill(x0 + 1, ground + floor * 4 - 1, z0 + 1, x1 - 1, ground + floor * 4 - 1, z1 - 1, STONE);
+                }
+                volume.fill(x0 + 1, ground, z1 - 1, x0 + 1, roof - 1, z1 - 1, LADDER);
+
+                int door = x0 + 1 + random.nextInt(x1 - x0 - 1);
+                volume.fill(door, ground, z0, door, ground + 1, z0, DOOR);
+            }
+        }
+    }
+
+    private static void caves(FlagVolume volume, int size, Random random) {
+        volume.fill(0, 0, 0, size - 1, size - 1, size - 1, STONE);
+
+        int tunnels = Math.max(4, size * size / 256);
+        for (int tunnel = 0; tunnel < tunnels; tunnel++) {
+            double x = random.nextInt(size);
+            double y = 4 + random.nextInt(size - 8);
+            double z = random.nextInt(size);
+            double yaw = random.nextDouble() * Math.PI * 2;
+            double pitch = 0;
+            double radius = 1.5 + random.nextDouble() * 1.5;
+
+            for (int step = 0; step < size; step++) {
+                carveSphere(volume, x, y, z, radius);
+                yaw += random.nextGaussian() * 0.3;
+                pitch = Math.max(-0.4, Math.min(0.4, pitch + random.nextGaussian() * 0.1));
+                x += Math.cos(yaw) * Math.cos(pitch);
+                y += Math.sin(pitch);
+                z += Math.sin(yaw) * Math.cos(pitch);
+                if (y < radius + 1 || y > size - radius - 2) pitch = -pitch;
+            }
+        }
+    }
+
+    private static void carveSphere(FlagVolume volume, double x, double y, double z, double radius) {
+        int r = (int) Math.ceil(radius);
+        for (int dx = -r; dx <= r; dx++) {
+            for (int dy = -r; dy <= r; dy++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    int bx = (int) x + dx;
+                    int by = (int) y + dy;
+                    int bz = (int) z + dz;
+                    if (dx * dx + dy * dy + dz * dz <= radius * radius && volume.contains(bx, by, bz)) volume.set(bx, by, bz, AIR);
+                }
+            }
+        }
+    }
+
+    private static void shafts(FlagVolume volume, int size, Random random) {
+        int shafts = Math.max(1, size * size / 4096);
+        for (int y = 0; y < size; y += 12) volume.fill(0, y, 0, size - 1, y, size - 1, STONE);
+
+        //shafts lead from each floor through the next one up
+        for (int y = 0; y + 12 < size; y += 12) {
+            for (int i = 0; i < shafts; i++) {
+                int x = random.nextInt(size - 1);
+                int z = random.nextInt(size - 1);
+                volume.fill(x, y + 1, z, x, y + 12, z, LADDER);
+            }
+            for (int i = 0; i < shafts; i++) {
+                int x = random.nextInt(size - 1);
+                int z = random.nextInt(size - 1);
+                volume.fill(x, y + 1, z, x + 1, y + 12, z + 1, WATER);
+            }
+        }
+    }
+
+    private static void lavaCorridors(FlagVolume volume, int size, Random random) {
+        int ground = 4;
+        int cells = (size - 1) / 4;
+        volume.fill(0, 0, 0, size - 1, ground - 1, size - 1, STONE);
+        volume.fill(0, ground, 0, cells * 4, ground + 3, cells * 4, STONE);
+
+        //randomized depth-first search over cells, each cell being a 3x3 room and walls one block thick
+        boolean[] visited = new boolean[cells * cells];
+        IntArrayList stack = new IntArrayList();
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        visited[0] = true;
+        stack.push(0);
+        carveCell(volume, 0, 0, ground);
+
+        while (!stack.isEmpty()) {
+            int cell = stack.topInt();
+            int cx = cell / cells;
+            int cz = cell % cells;
+            int start = random.nextInt(4);
+
+            boolean moved = false;
+            for (int i = 0; i < 4; i++) {
+                int[] direction = directions[(start + i) % 4];
+                int nx = cx + direction[0];
+                int nz = cz + direction[1];
+                if (nx < 0 || nz < 0 || nx >= cells || nz >= cells || visited[nx * cells + nz]) continue;
+
+                visited[nx * cells + nz] = true;
+                int wallX = cx * 4 + 2 + direction[0] * 2;
+                int wallZ = cz * 4 + 2 + direction[1] * 2;
+                volume.fill(wallX - Math.abs(direction[1]), ground, wallZ - Math.abs(direction[0]),
+                        wallX + Math.abs(direction[1]), ground + 2, wallZ + Math.abs(direction[0]), AIR);
+                carveCell(volume, nx, nz, ground);
+                stack.push(nx * cells + nz);
+                moved = true;
+                break;
+            }
+            if (!moved) stack.popInt();
+        }
+
+        //lava replaces the bottom of a third of remaining wall blocks, next to corridors but never blocking them
+        for (int x = 0; x <= cells * 4; x++) {
+            for (int z = 0; z <= cells * 4; z++) {
+                if ((x % 4 == 0) != (z % 4 == 0) && volume.getFlags(x, ground, z) == STONE && random.nextInt(3) == 0)
+                    volume.set(x, ground, z, LAVA);
+            }
+        }
+    }
+
+    private static void carveCell(FlagVolume volume, int cx, int cz, int ground) {
+        volume.fill(cx * 4 + 1, ground, cz * 4 + 1, cx * 4 + 3, ground + 2, cz * 4 + 3, AIR);
+    }
+
+    private static void softFloors(FlagVolume volume, int size, Random random) {
+        int base = size / 4;
+        int amplitude = Math.min(size / 8, 16);
+        int[][] heights = noise(size, 16, amplitude, random);
+        int[][] patches = noise(size, 8, 3, random);
+
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                int height = base + heights[x][z];
+                volume.fill(x, 0, z, x, height - 1, z, STONE);
+                switch (patches[x][z]) {
+                    case 1 -> volume.set(x, height, z, CARPET);
+                    case 2 -> volume.set(x, height, z, SNOW);
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Value noise, random values on a lattice interpolated bilinearly, in range [0, amplitude).
+     */
+    private static int[][] noise(int size, int spacing, int amplitude, Random random) {
+        int lattice = size / spacing + 2;
+        double[][] values = new double[lattice][lattice];
+        for (double[] row : values) {
+            for (int i = 0; i < lattice; i++) row[i] = random.nextDouble() * amplitude;
+        }
+
+        int[][] noise = new int[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                int lx = x / spacing;
+                int lz = z / spacing;
+                double fx = (double) (x % spacing) / spacing;
+                double fz = (double) (z % spacing) / spacing;
+                double value = values[lx][lz] * (1 - fx) * (1 - fz) + values[lx + 1][lz] * fx * (1 - fz)
+                        + values[lx][lz + 1] * (1 - fx) * fz + values[lx + 1][lz + 1] * fx * fz;
+                noise[x][z] = Math.min((int) value, amplitude - 1);
+            }
+        }
+        return noise;
+    }
+
+    private static void islands(FlagVolume volume, int size, Random random) {
+        volume.fill(0, 0, 0, size - 1, 1, size - 1, STONE);
+        volume.fill(0, 2, 0, size - 1, 3, size - 1, WATER);
+
+        int islands = Math.max(2, size * size / 2048);
+        for (int i = 0; i < islands; i++) {
+            int radius = 3 + random.nextInt(6);
+            int x = random.nextInt(size);
+            int y = 10 + random.nextInt(size - 14);
+            int z = random.nextInt(size);
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (dx * dx + dz * dz <= radius * radius) volume.fill(x + dx, y, z + dz, x + dx, y + 1, z + dz, STONE);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.FlagVolume;
+import net.pathfinder.main.graph.WorldCorpus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+import static net.pathfinder.main.graph.FlagPresets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link HierarchicalBuilder} finds valid paths to long range targets whenever a regular search with
+ * a range covering them finds one, and only then. Paths found hierarchically aren't always optimal, so they can only
+ * cost more than the regular ones.
+ */
+class HierarchicalBuilderTest {
+
+    private static final int SIZE = 160;
+    private static final int QUERIES = 10;
+    /**
+     * Range of regular searches used as reference, covering the whole volume.
+     */
+    private static final int RANGE = 256;
+    /**
+     * Height of positions standing on the floor of hand-built volumes, one block into the second section.
+     */
+    private static final int GROUND = 17;
+
+    private int maxPathDistance;
+
+    @BeforeEach
+    void saveConfig() {
+        maxPathDistance = cfg.maxPathDistance;
+        cfg.maxPathDistance = RANGE;
+        cfg.maxPathDistanceSquared = RANGE * RANGE;
+    }
+
+    @AfterEach
+    void restoreConfig() {
+        cfg.maxPathDistance = maxPathDistance;
+        cfg.maxPathDistanceSquared = maxPathDistance * maxPathDistance;
+    }
+
+    @Test
+    void matchesRegularSearchesOnCorpus() {
+        for (WorldCorpus.Kind kind : new WorldCorpus.Kind[] {WorldCorpus.Kind.CITY, WorldCorpus.Kind.SOFT_FLOORS, WorldCorpus.Kind.LAVA_CORRIDORS}) {
+            FlagVolume volume = WorldCorpus.generate(kind, SIZE, 10);
+            long[] positions = WorldCorpus.samplePositions(volume, QUERIES * 8, 11);
+
+            int queries = 0;
+            for (int i = 0; i + 1 < positions.length && queries < QUERIES; i += 2) {
+                BlockPos start = BlockPos.fromLong(positions[i]);
+                BlockPos target = BlockPos.fromLong(positions[i + 1]);
+                //only targets out of range of regular searches with the saved config, as the game would search them
+                if (start.getSquaredDistance(target) <= maxPathDistance * maxPathDistance) continue;
+
+                check(volume, start, target, kind + " search from " + start + " to " + target);
+                queries++;
+            }
+        }
+    }
+
+    @Test
+    void routesThroughOnlyOpenExit() {
+        FlagVolume volume = corridor();
+        BlockPos start = new BlockPos(8, GROUND, 8);
+        BlockPos target = new BlockPos(150, GROUND, 8);
+
+        //a wall along a section border, leaving a single gap in another section than the start and the target
+        volume.fill(64, GROUND, 0, 64, GROUND + 2, 47, STONE);
+        volume.fill(64, GROUND, 40, 64, GROUND + 1, 40, AIR);
+        PathResult result = check(volume, start, target, "search through gap");
+        assertEquals(PathResult.Status.FOUND, result.status());
+        assertTrue(result.path().contains(new BlockPos(64, GROUND, 40)), "Path doesn't pass through the gap");
+
+        volume.fill(64, GROUND, 40, 64, GROUND + 1, 40, STONE);
+        assertEquals(PathResult.Status.UNREACHABLE, check(volume, start, target, "search through closed gap").status());
+    }
+
+    /**
+     * Compares a hierarchical search with a regular one, checking moves along the found path.
+     */
+    private static PathResult check(FlagVolume volume, BlockPos start, BlockPos target, String query) {
+        PathResult expected = run(job -> AstarBuilder.runAstar(volume, start, target, job));
+        PathResult result = run(job -> HierarchicalBuilder.findPath(volume, start, target, job));
+        assertEquals(expected.status(), result.status(), query);
+        if (result.status() != PathResult.Status.FOUND) return result;
+
+        assertEquals(start, result.path().get(0), query);
+        assertEquals(target, result.path().get(result.path().size() - 1), query);
+        float cost = SearchModeTest.getCost(volume, expected.path());
+        assertTrue(SearchModeTest.getCost(volume, result.path()) >= cost - 1e-3f, query);
+        return result;
+    }
+
+    private static PathResult run(Function<PathJob, PathResult> search) {
+        return new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false).run(search);
+    }
+
+    /**
+     * A flat stone floor ten sections long and three wide, standing positions on it being in the second section up.
+     */
+    private static FlagVolume corridor() {
+        FlagVolume volume = new FlagVolume(0, 0, 0, SIZE, 32, 48);
+        volume.fill(0, 0, 0, SIZE - 1, GROUND - 1, 47, STONE);
+        return volume;
+    }
+}
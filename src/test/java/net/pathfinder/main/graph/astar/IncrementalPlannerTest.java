@@ -0,0 +1,102 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.FlagVolume;
+import net.pathfinder.main.graph.WorldCorpus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+import static net.pathfinder.main.graph.FlagPresets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that paths repaired by {@link IncrementalPlanner} after blocks around the previous path change, and after
+ * the start moves along it, cost the same as paths searched from scratch with {@link SearchMode#STANDARD}.
+ */
+class IncrementalPlannerTest {
+
+    private static final int SIZE = 48;
+    private static final int TARGETS = 4;
+    private static final int ROUNDS = 12;
+    private static final int EDITS = 8;
+
+    private SearchMode searchMode;
+
+    @BeforeEach
+    void saveConfig() {
+        searchMode = cfg.searchMode;
+        cfg.searchMode = SearchMode.STANDARD;
+    }
+
+    @AfterEach
+    void restoreConfig() {
+        cfg.searchMode = searchMode;
+    }
+
+    @Test
+    void repairedPathsMatchNewSearches() {
+        Random random = new Random(11);
+        for (WorldCorpus.Kind kind : new WorldCorpus.Kind[] {WorldCorpus.Kind.CITY, WorldCorpus.Kind.CAVES, WorldCorpus.Kind.SOFT_FLOORS}) {
+            long[] positions = WorldCorpus.samplePositions(WorldCorpus.generate(kind, SIZE, 11), TARGETS * 2, 12);
+
+            for (int t = 0; t + 1 < positions.length; t += 2) {
+                FlagVolume volume = WorldCorpus.generate(kind, SIZE, 11);
+                IncrementalPlanner planner = new IncrementalPlanner();
+                BlockPos start = BlockPos.fromLong(positions[t]);
+                BlockPos target = BlockPos.fromLong(positions[t + 1]);
+
+                for (int round = 0; round < ROUNDS; round++) {
+                    String query = kind + " round " + round + " from " + start + " to " + target;
+                    FlagVolume current = volume;
+                    BlockPos from = start;
+                    PathResult expected = run(job -> AstarBuilder.runAstar(current, from, target, job));
+                    PathResult result = run(job -> planner.findPath(current, from, target, job));
+                    assertEquals(expected.status(), result.status(), query);
+                    assertEquals(SearchModeTest.getCost(volume, expected.path()), SearchModeTest.getCost(volume, result.path()), 1e-3f, query);
+
+                    if (expected.path().size() > 3 && random.nextBoolean()) start = expected.path().get(2);
+                    //the planner compares the previous source with the next one, so edits are made on a copy
+                    volume = copy(volume);
+                    edit(volume, expected.path(), start, target, random);
+                }
+            }
+        }
+    }
+
+    private static PathResult run(Function<PathJob, PathResult> search) {
+        return new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false).run(search);
+    }
+
+    /**
+     * Toggles random blocks within two blocks of a path between stone and air, keeping the columns of the start
+     * and the target intact.
+     */
+    private static void edit(FlagVolume volume, List<BlockPos> path, BlockPos start, BlockPos target, Random random) {
+        if (path.isEmpty()) path = List.of(start, target);
+        for (int i = 0; i < EDITS; i++) {
+            BlockPos pos = path.get(random.nextInt(path.size())).add(random.nextInt(5) - 2, random.nextInt(5) - 2, random.nextInt(5) - 2);
+            if (!volume.contains(pos.getX(), pos.getY(), pos.getZ()) || isNearColumn(pos, start) || isNearColumn(pos, target)) continue;
+            volume.set(pos.getX(), pos.getY(), pos.getZ(), volume.getFlags(pos.getX(), pos.getY(), pos.getZ()) == STONE ? AIR : STONE);
+        }
+    }
+
+    private static boolean isNearColumn(BlockPos pos, BlockPos column) {
+        return Math.abs(pos.getX() - column.getX()) <= 1 && Math.abs(pos.getZ() - column.getZ()) <= 1;
+    }
+
+    private static FlagVolume copy(FlagVolume volume) {
+        FlagVolume copy = new FlagVolume(volume.getMinX(), volume.getMinY(), volume.getMinZ(), volume.getSizeX(), volume.getSizeY(), volume.getSizeZ());
+        for (int x = volume.getMinX(); x < volume.getMinX() + volume.getSizeX(); x++) {
+            for (int y = volume.getMinY(); y < volume.getMinY() + volume.getSizeY(); y++) {
+                for (int z = volume.getMinZ(); z < volume.getMinZ() + volume.getSizeZ(); z++) copy.set(x, y, z, volume.getFlags(x, y, z));
+            }
+        }
+        return copy;
+    }
+}
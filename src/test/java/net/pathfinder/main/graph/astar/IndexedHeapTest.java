@@ -0,0 +1,103 @@
+package net.pathfinder.main.graph.astar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IndexedHeap} against a plain array of keys searched linearly, over random pushes, key updates and removals.
+ */
+class IndexedHeapTest {
+
+    private static final int NODES = 3_000;
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    void matchesLinearSearchOnRandomOperations() {
+        Random random = new Random(19);
+        IndexedHeap heap = new IndexedHeap();
+        float[] keys = new float[NODES];
+        Arrays.fill(keys, Float.NaN);
+        int size = 0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                int node = random.nextInt(NODES);
+                float key = random.nextInt(1000) / 10f;
+                if (Float.isNaN(keys[node])) size++;
+                keys[node] = key;
+                heap.push(node, key);
+            }
+            else if (operation < 8) {
+                if (size == 0) continue;
+                float min = min(keys);
+                assertEquals(min, heap.peekKey());
+                int node = heap.poll();
+                assertEquals(min, keys[node], "Polled a node without the smallest key");
+                keys[node] = Float.NaN;
+                size--;
+            }
+            else {
+                int node = random.nextInt(NODES);
+                if (!Float.isNaN(keys[node])) size--;
+                keys[node] = Float.NaN;
+                heap.remove(node);
+            }
+
+            assertEquals(size, heap.size());
+            int node = random.nextInt(NODES);
+            assertEquals(!Float.isNaN(keys[node]), heap.contains(node));
+        }
+    }
+
+    @Test
+    void pollsInKeyOrder() {
+        Random random = new Random(20);
+        IndexedHeap heap = new IndexedHeap();
+        for (int node = 0; node < NODES; node++) heap.push(node, random.nextFloat());
+
+        float last = Float.NEGATIVE_INFINITY;
+        while (!heap.isEmpty()) {
+            float key = heap.peekKey();
+            assertTrue(key >= last);
+            heap.poll();
+            last = key;
+        }
+    }
+
+    @Test
+    void rekeyRestoresOrder() {
+        IndexedHeap heap = new IndexedHeap();
+        for (int node = 0; node < 100; node++) heap.push(node, node);
+        heap.rekey(node -> 100 - node);
+
+        for (int node = 99; node >= 0; node--) assertEquals(node, heap.poll());
+    }
+
+    @Test
+    void clearKeepsHeapUsable() {
+        IndexedHeap heap = new IndexedHeap();
+        for (int node = 0; node < 5_000; node++) heap.push(node, node);
+        heap.clear();
+
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(10));
+        heap.push(10, 3f);
+        heap.push(20, 1f);
+        assertEquals(20, heap.poll());
+        assertEquals(10, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    private static float min(float[] keys) {
+        float min = Float.POSITIVE_INFINITY;
+        for (float key : keys) {
+            if (!Float.isNaN(key)) min = Math.min(min, key);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,88 @@
+package net.pathfinder.main.graph.astar;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.FlagVolume;
+import net.pathfinder.main.graph.WorldChanges;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+import static net.pathfinder.main.graph.NavigationFlags.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link PathCache} entries are evicted by changes of blocks their search read.
+ */
+class PathCacheTest {
+
+    private static final int STONE = withImplied(SOLID);
+    /**
+     * Height of the floor top, placing walked positions three blocks above a section border.
+     */
+    private static final int FLOOR = 18;
+
+    private SearchMode searchMode;
+    private int pathCacheSize;
+
+    @BeforeEach
+    void saveConfig() {
+        searchMode = cfg.searchMode;
+        pathCacheSize = cfg.pathCacheSize;
+        cfg.pathCacheSize = 16;
+        PathCache.clear();
+    }
+
+    @AfterEach
+    void restoreConfig() {
+        cfg.searchMode = searchMode;
+        cfg.pathCacheSize = pathCacheSize;
+        PathCache.clear();
+    }
+
+    @Test
+    void evictsOnChangeReadBackwards() {
+        cfg.searchMode = SearchMode.BIDIRECTIONAL;
+        FlagVolume volume = new FlagVolume(0, 0, 0, 32, 24, 32);
+        volume.fill(0, 0, 0, 31, FLOOR, 31, STONE);
+        BlockPos start = new BlockPos(2, FLOOR + 1, 2);
+        BlockPos target = new BlockPos(28, FLOOR + 1, 28);
+
+        PathResult result = cache(volume, start, target);
+        assertEquals(PathResult.Status.FOUND, result.status());
+
+        //the backward search reaches positions a block below the target, reading predecessors three blocks down from them,
+        //in the section below the ones read by the forward search
+        BlockPos changed = target.down(4);
+        volume.set(changed.getX(), changed.getY(), changed.getZ(), PASSABLE);
+        PathCache.onWorldChanged(LongSet.of(BlockPos.asLong(changed.getX() >> 4, changed.getY() >> 4, changed.getZ() >> 4)), LongSet.of());
+
+        assertNull(PathCache.get(start, target, PathCache.getSettingsHash()));
+    }
+
+    @Test
+    void keepsEntryOnChangeOutsideSearch() {
+        cfg.searchMode = SearchMode.STANDARD;
+        FlagVolume volume = new FlagVolume(0, 0, 0, 48, 24, 16);
+        volume.fill(0, 0, 0, 47, FLOOR, 15, STONE);
+        BlockPos start = new BlockPos(2, FLOOR + 1, 2);
+        BlockPos target = new BlockPos(6, FLOOR + 1, 2);
+
+        cache(volume, start, target);
+        PathCache.onWorldChanged(LongSet.of(BlockPos.asLong(2, 0, 0)), LongSet.of());
+
+        assertNotNull(PathCache.get(start, target, PathCache.getSettingsHash()));
+    }
+
+    /**
+     * Runs a search and caches its result the way cached searches do, checking that it's stored.
+     */
+    private static PathResult cache(FlagVolume volume, BlockPos start, BlockPos target) {
+        long revision = WorldChanges.getRevision();
+        PathResult result = new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false).run(job -> AstarBuilder.runAstar(volume, start, target, job));
+        PathCache.put(start, target, PathCache.getSettingsHash(), result, AstarBuilder.getReadSections(), revision);
+        assertNotNull(PathCache.get(start, target, PathCache.getSettingsHash()));
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package net.pathfinder.main.graph.astar;
+
+import net.minecraft.util.math.BlockPos;
+import net.pathfinder.main.graph.CandidateBuffer;
+import net.pathfinder.main.graph.CandidateSupplier;
+import net.pathfinder.main.graph.FlagVolume;
+import net.pathfinder.main.graph.WalkabilityMemo;
+import net.pathfinder.main.graph.WorldCorpus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static net.pathfinder.main.config.PFConfig.cfg;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that every {@link SearchMode} finds paths of the same cost between random positions of {@link WorldCorpus}
+ * volumes. Anytime searches get enough time to reach an optimal path. The corpus doesn't use stairs, as their flat cost
+ * makes straight line distance inadmissible.
+ */
+class SearchModeTest {
+
+    private static final int SIZE = 48;
+    private static final int QUERIES = 20;
+
+    private SearchMode searchMode;
+    private int anytimeBudget;
+
+    @BeforeEach
+    void saveConfig() {
+        searchMode = cfg.searchMode;
+        anytimeBudget = cfg.anytimeBudget;
+        cfg.anytimeBudget = 60_000;
+    }
+
+    @AfterEach
+    void restoreConfig() {
+        cfg.searchMode = searchMode;
+        cfg.anytimeBudget = anytimeBudget;
+    }
+
+    @Test
+    void modesFindEqualCosts() {
+        for (WorldCorpus.Kind kind : WorldCorpus.Kind.values()) {
+            FlagVolume volume = WorldCorpus.generate(kind, SIZE, 19);
+            long[] positions = WorldCorpus.samplePositions(volume, QUERIES * 2, 20);
+
+            for (int q = 0; q + 1 < positions.length; q += 2) {
+                BlockPos start = BlockPos.fromLong(positions[q]);
+                BlockPos target = BlockPos.fromLong(positions[q + 1]);
+
+                PathResult standard = search(SearchMode.STANDARD, volume, start, target);
+                float cost = getCost(volume, standard.path());
+                for (SearchMode mode : new SearchMode[] {SearchMode.BIDIRECTIONAL, SearchMode.ANYTIME}) {
+                    PathResult result = search(mode, volume, start, target);
+                    String query = mode.name + " search in " + kind + " from " + start + " to " + target;
+                    assertEquals(standard.status(), result.status(), query);
+                    assertEquals(cost, getCost(volume, result.path()), 1e-3f, query);
+                }
+            }
+        }
+    }
+
+    private static PathResult search(SearchMode mode, FlagVolume volume, BlockPos start, BlockPos target) {
+        cfg.searchMode = mode;
+        return new PathJob(cfg.maxSearchNodes, cfg.maxSearchTime, false).run(job -> AstarBuilder.runAstar(volume, start, target, job));
+    }
+
+    /**
+     * Sums costs of moves along a path, failing if any step isn't a valid move.
+     */
+    static float getCost(FlagVolume volume, List<BlockPos> path) {
+        if (path.isEmpty()) return 0;
+        CandidateSupplier supplier = new CandidateSupplier(volume, path.get(0), new WalkabilityMemo());
+        CandidateBuffer buffer = new CandidateBuffer();
+        float cost = 0;
+
+        for (int i = 1; i < path.size(); i++) {
+            long next = path.get(i).asLong();
+            supplier.getCandidates(path.get(i - 1).asLong(), buffer);
+            float step = Float.NaN;
+            for (int c = 0; c < buffer.size(); c++) {
+                if (buffer.position(c) == next) step = buffer.cost(c);
+            }
+            assertFalse(Float.isNaN(step), "Invalid move from " + path.get(i - 1) + " to " + path.get(i));
+            cost += step;
+        }
+        return cost;
+    }
+}
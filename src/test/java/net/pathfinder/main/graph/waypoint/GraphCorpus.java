@@ -0,0 +1,106 @@
+package net.pathfinder.main.graph.waypoint;
+
+import net.pathfinder.main.graph.FlagVolume;
+import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.astar.AstarBuilder;
+import net.pathfinder.main.graph.waypoint.data.DimensionData;
+import net.pathfinder.main.graph.waypoint.data.LocationData;
+import net.pathfinder.main.graph.waypoint.data.Waypoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of deterministic synthetic waypoint graphs for benchmarks and tests, either as large standalone grids
+ * or laid over a {@link net.pathfinder.main.graph.WorldCorpus} volume. Graphs are built as {@link DimensionData}
+ * with ids starting at 0, without touching the loaded dimension.
+ */
+public class GraphCorpus {
+
+    public static final int MAX_NODES = 1_000_000;
+    private static final int SPACING = 12;
+
+    /**
+     * Builds a graph of waypoints on a jittered square grid at varying heights, each linked both ways to its grid
+     * neighbours, with a fifth of links along one axis missing. One in a thousand waypoints is a teleport
+     * linked to another random teleport, one in four teleport pairs only working in one direction.
+     */
+    public static DimensionData grid(int nodes, long seed) {
+        if (nodes < 2 || nodes > MAX_NODES) throw new IllegalArgumentException("Node count has to be between 2 and " + MAX_NODES + ", got " + nodes);
+
+        DimensionData data = new DimensionData();
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(nodes));
+        Waypoint[] waypoints = new Waypoint[nodes];
+
+        for (int i = 0; i < nodes; i++) {
+            int gridX = i % side;
+            int gridZ = i / side;
+            Waypoint waypoint = new Waypoint(data.idTracker++, gridX * SPACING + random.nextInt(7) - 3,
+                    64 + random.nextInt(5), gridZ * SPACING + random.nextInt(7) - 3);
+            waypoints[i] = waypoint;
+            data.add(waypoint);
+
+            if (gridX > 0) link(waypoint, waypoints[i - 1]);
+            //rows stay connected through the first column
+            if (gridZ > 0 && (gridX == 0 || random.nextInt(5) != 0)) link(waypoint, waypoints[i - side]);
+        }
+
+        for (int pair = 0; pair < nodes / 2000; pair++) {
+            Waypoint from = waypoints[random.nextInt(nodes)];
+            Waypoint to = waypoints[random.nextInt(nodes)];
+            if (from == to || data.locations.containsKey(from.id()) || data.locations.containsKey(to.id())) continue;
+
+            //a one way teleport can only be left through its teleport link
+            data.locations.put(from.id(), LocationData.create(from.id()).setTeleport(true).setOneWay(pair % 4 == 0));
+            data.locations.put(to.id(), LocationData.create(to.id()).setTeleport(true));
+            link(from, to);
+        }
+        return data;
+    }
+
+    /**
+     * Builds a graph over a volume, with a waypoint on every valid walking position found in columns on a grid.
+     * Waypoints in neighbouring columns are linked if the straight line between them is walkable.
+     */
+    public static DimensionData forVolume(FlagVolume volume, int spacing) {
+        DimensionData data = new DimensionData();
+        int columnsX = volume.getSizeX() / spacing;
+        int columnsZ = volume.getSizeZ() / spacing;
+        List<List<Waypoint>> columns = new ArrayList<>(columnsX * columnsZ);
+
+        for (int columnX = 0; columnX < columnsX; columnX++) {
+            for (int columnZ = 0; columnZ < columnsZ; columnZ++) {
+                int x = volume.getMinX() + columnX * spacing + spacing / 2;
+                int z = volume.getMinZ() + columnZ * spacing + spacing / 2;
+                List<Waypoint> column = new ArrayList<>();
+                for (int y = volume.getMinY() + 1; y < volume.getMinY() + volume.getSizeY() - 1; y++) {
+                    if (!PositionUtils.isValidWalkPosition(volume, x, y, z)) continue;
+                    Waypoint waypoint = new Waypoint(data.idTracker++, x, y, z);
+                    data.add(waypoint);
+                    column.add(waypoint);
+                }
+                columns.add(column);
+
+                if (columnX > 0) linkColumns(volume, column, columns.get((columnX - 1) * columnsZ + columnZ));
+                if (columnZ > 0) linkColumns(volume, column, columns.get(columnX * columnsZ + columnZ - 1));
+            }
+        }
+        return data;
+    }
+
+    private static void linkColumns(FlagVolume volume, List<Waypoint> column, List<Waypoint> neighbours) {
+        for (Waypoint waypoint : column) {
+            for (Waypoint neighbour : neighbours) {
+                if (AstarBuilder.isLinkValid(volume, waypoint.pos(), neighbour.pos())
+                        && AstarBuilder.isLinkValid(volume, neighbour.pos(), waypoint.pos())) link(waypoint, neighbour);
+            }
+        }
+    }
+
+    private static void link(Waypoint first, Waypoint second) {
+        first.neighbours().add(second.id());
+        second.neighbours().add(first.id());
+    }
+}
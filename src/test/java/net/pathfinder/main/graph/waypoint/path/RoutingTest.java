@@ -0,0 +1,80 @@
+package net.pathfinder.main.graph.waypoint.path;
+
+import net.pathfinder.main.graph.PositionUtils;
+import net.pathfinder.main.graph.waypoint.GraphCorpus;
+import net.pathfinder.main.graph.waypoint.data.DimensionData;
+import net.pathfinder.main.graph.waypoint.data.Waypoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that routes found with landmarks (ALT) and with a {@link ContractionHierarchy} cost the same as those found
+ * with plain Dijkstra's, on {@link GraphCorpus} grids with teleports, some of them one way.
+ */
+class RoutingTest {
+
+    private static final int GRAPHS = 3;
+    /**
+     * Enough waypoints for the corpus to place up to ten teleport pairs in each graph.
+     */
+    private static final int NODES = 20_000;
+    private static final int QUERIES = 200;
+
+    @Test
+    void routesMatchDijkstra() {
+        Random random = new Random(25);
+
+        for (int g = 0; g < GRAPHS; g++) {
+            DimensionData data = GraphCorpus.grid(NODES, g);
+            RoutingGraph graph = RoutingGraph.compile(data);
+            Landmarks landmarks = Landmarks.compute(graph, 12);
+            ContractionHierarchy hierarchy = ContractionHierarchy.compute(graph);
+
+            for (int q = 0; q < QUERIES; q++) {
+                Waypoint start = data.waypoints.get(random.nextInt(NODES));
+                Waypoint end = data.waypoints.get(random.nextInt(NODES));
+                List<DijkstraNode> expected = graph.findRoute(start, end, null);
+                String query = "route from " + start.id() + " to " + end.id();
+
+                checkRoute(data, start, end, expected, graph.findRoute(start, end, landmarks), "ALT " + query);
+                checkRoute(data, start, end, expected, hierarchy.findRoute(start, end), "CH " + query);
+            }
+        }
+    }
+
+    private static void checkRoute(DimensionData data, Waypoint start, Waypoint end, List<DijkstraNode> expected, List<DijkstraNode> route, String query) {
+        if (expected == null) {
+            assertNull(route, query);
+            return;
+        }
+        assertNotNull(route, query);
+        assertEquals(start.id(), route.get(0).id(), query);
+        assertEquals(end.id(), route.get(route.size() - 1).id(), query);
+
+        float length = expected.get(expected.size() - 1).distance;
+        float tolerance = 1e-3f * Math.max(1, length);
+        assertEquals(length, route.get(route.size() - 1).distance, tolerance, query);
+        assertEquals(length, getLength(data, route), tolerance, query);
+    }
+
+    /**
+     * Sums lengths of links along a route, failing if any of them doesn't exist or leads into a one way teleport
+     * from another teleport.
+     */
+    private static float getLength(DimensionData data, List<DijkstraNode> route) {
+        float length = 0;
+        for (int i = 1; i < route.size(); i++) {
+            DijkstraNode from = route.get(i - 1);
+            DijkstraNode to = route.get(i);
+            assertTrue(data.waypoints.get(from.id()).neighbours().contains(to.id()), "Missing link from " + from.id() + " to " + to.id());
+
+            if (from.isTeleport() && to.isTeleport()) assertFalse(to.isOneWay(), "Teleported into one way teleport " + to.id());
+            else length += PositionUtils.getDistance(from.pos(), to.pos());
+        }
+        return length;
+    }
+}